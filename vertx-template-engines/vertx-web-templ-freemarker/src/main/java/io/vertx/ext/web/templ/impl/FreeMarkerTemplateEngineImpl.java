@@ -57,7 +57,7 @@ public class FreeMarkerTemplateEngineImpl extends CachingTemplateEngine<Template
 
   @Override
   public FreeMarkerTemplateEngine setMaxCacheSize(int maxCacheSize) {
-    this.cache.setMaxSize(maxCacheSize);
+    this.templateCache.setMaxSize(maxCacheSize);
     return this;
   }
 
@@ -65,7 +65,7 @@ public class FreeMarkerTemplateEngineImpl extends CachingTemplateEngine<Template
   public void render(RoutingContext context, String templateDirectory, String templateFileName, Handler<AsyncResult<Buffer>> handler) {
     try {
       templateFileName = templateDirectory + templateFileName;
-      Template template = isCachingEnabled() ? cache.get(templateFileName) : null;
+      Template template = isCachingEnabled() ? templateCache.get(templateFileName) : null;
       if (template == null) {
         // real compile
         synchronized (this) {
@@ -74,7 +74,7 @@ public class FreeMarkerTemplateEngineImpl extends CachingTemplateEngine<Template
           template = config.getTemplate(adjustLocation(templateFileName));
         }
         if (isCachingEnabled()) {
-          cache.put(templateFileName, template);
+          templateCache.put(templateFileName, template);
         }
       }
 
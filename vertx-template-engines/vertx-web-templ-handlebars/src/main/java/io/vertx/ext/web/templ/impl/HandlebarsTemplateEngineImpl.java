@@ -60,7 +60,7 @@ public class HandlebarsTemplateEngineImpl extends CachingTemplateEngine<Template
 
   @Override
   public HandlebarsTemplateEngine setMaxCacheSize(int maxCacheSize) {
-    this.cache.setMaxSize(maxCacheSize);
+    this.templateCache.setMaxSize(maxCacheSize);
     return this;
   }
 
@@ -69,7 +69,7 @@ public class HandlebarsTemplateEngineImpl extends CachingTemplateEngine<Template
     try {
       String baseTemplateFileName = templateFileName;
       templateFileName = templateDirectory + templateFileName;
-      Template template = isCachingEnabled() ? cache.get(templateFileName) : null;
+      Template template = isCachingEnabled() ? templateCache.get(templateFileName) : null;
       if (template == null) {
         synchronized (this) {
           loader.setPrefix(templateDirectory);
@@ -77,7 +77,7 @@ public class HandlebarsTemplateEngineImpl extends CachingTemplateEngine<Template
           // Strip leading slash from Utils##normalizePath
           template = handlebars.compile(baseTemplateFileName.substring(1));
           if (isCachingEnabled()) {
-            cache.put(templateFileName, template);
+            templateCache.put(templateFileName, template);
           }
         }
       }
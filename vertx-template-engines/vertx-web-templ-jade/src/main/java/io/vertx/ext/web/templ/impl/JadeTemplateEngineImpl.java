@@ -57,7 +57,7 @@ public class JadeTemplateEngineImpl extends CachingTemplateEngine<JadeTemplate>
 
   @Override
   public JadeTemplateEngine setMaxCacheSize(int maxCacheSize) {
-    this.cache.setMaxSize(maxCacheSize);
+    this.templateCache.setMaxSize(maxCacheSize);
     return this;
   }
 
@@ -65,7 +65,7 @@ public class JadeTemplateEngineImpl extends CachingTemplateEngine<JadeTemplate>
   public void render(RoutingContext context, String templateDirectory, String templateFileName, Handler<AsyncResult<Buffer>> handler) {
     try {
       templateFileName = templateDirectory + templateFileName;
-      JadeTemplate template = isCachingEnabled() ? cache.get(templateFileName) : null;
+      JadeTemplate template = isCachingEnabled() ? templateCache.get(templateFileName) : null;
 
       if (template == null) {
         synchronized (this) {
@@ -74,7 +74,7 @@ public class JadeTemplateEngineImpl extends CachingTemplateEngine<JadeTemplate>
           template = config.getTemplate(templateFileName);
         }
         if (isCachingEnabled()) {
-          cache.put(templateFileName, template);
+          templateCache.put(templateFileName, template);
         }
       }
       Map<String, Object> variables = new HashMap<>(1);
@@ -50,7 +50,7 @@ public class MVELTemplateEngineImpl extends CachingTemplateEngine<CompiledTempla
 
   @Override
   public MVELTemplateEngine setMaxCacheSize(int maxCacheSize) {
-    this.cache.setMaxSize(maxCacheSize);
+    this.templateCache.setMaxSize(maxCacheSize);
     return this;
   }
 
@@ -58,7 +58,7 @@ public class MVELTemplateEngineImpl extends CachingTemplateEngine<CompiledTempla
   public void render(RoutingContext context, String templateDirectory, String templateFileName, Handler<AsyncResult<Buffer>> handler) {
     try {
       templateFileName = templateDirectory + templateFileName;
-      CompiledTemplate template = isCachingEnabled() ? cache.get(templateFileName) : null;
+      CompiledTemplate template = isCachingEnabled() ? templateCache.get(templateFileName) : null;
       if (template == null) {
         // real compile
         String loc = adjustLocation(templateFileName);
@@ -68,7 +68,7 @@ public class MVELTemplateEngineImpl extends CachingTemplateEngine<CompiledTempla
         }
         template = TemplateCompiler.compileTemplate(templateText);
         if (isCachingEnabled()) {
-          cache.put(templateFileName, template);
+          templateCache.put(templateFileName, template);
         }
       }
       Map<String, RoutingContext> variables = new HashMap<>(1);
@@ -57,7 +57,7 @@ public class PebbleTemplateEngineImpl extends CachingTemplateEngine<PebbleTempla
 
   @Override
   public PebbleTemplateEngine setMaxCacheSize(int maxCacheSize) {
-    this.cache.setMaxSize(maxCacheSize);
+    this.templateCache.setMaxSize(maxCacheSize);
     return this;
   }
 
@@ -65,13 +65,13 @@ public class PebbleTemplateEngineImpl extends CachingTemplateEngine<PebbleTempla
   public void render(RoutingContext context, String templateDirectory, String templateFileName, Handler<AsyncResult<Buffer>> handler) {
     try {
       templateFileName = templateDirectory + templateFileName;
-      PebbleTemplate template = isCachingEnabled() ? cache.get(templateFileName) : null;
+      PebbleTemplate template = isCachingEnabled() ? templateCache.get(templateFileName) : null;
       if (template == null) {
         // real compile
         final String loc = adjustLocation(templateFileName);
         template = pebbleEngine.getTemplate(loc);
         if (isCachingEnabled()) {
-          cache.put(templateFileName, template);
+          templateCache.put(templateFileName, template);
         }
       }
       final Locale locale = context.acceptableLanguages()
@@ -42,7 +42,7 @@ public class RockerTemplateEngineImpl extends CachingTemplateEngine<Void> implem
 
   @Override
   public RockerTemplateEngine setMaxCacheSize(int maxCacheSize) {
-    this.cache.setMaxSize(maxCacheSize);
+    this.templateCache.setMaxSize(maxCacheSize);
     return this;
   }
 
@@ -360,6 +360,19 @@ public interface Router {
   @Fluent
   Router exceptionHandler(@Nullable Handler<Throwable> exceptionHandler);
 
+  /**
+   * Enable compiled dispatch. When enabled the routes are compiled into a prefix tree of their paths grouped by HTTP
+   * method, so a request only tries the routes that can match its path instead of every route of the router. Routes
+   * defined by a regex are always tried. The order in which routes are tried is not affected.
+   * <p>
+   * The tree is rebuilt after routes are added, removed, enabled or disabled.
+   *
+   * @param compiledDispatch  true to enable compiled dispatch
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  Router useCompiledDispatch(boolean compiledDispatch);
+
   /**
    * Used to route a context to the router. Used for sub-routers. You wouldn't normally call this method directly.
    *
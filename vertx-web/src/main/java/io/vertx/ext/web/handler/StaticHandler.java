@@ -112,6 +112,21 @@ public interface StaticHandler extends Handler<RoutingContext> {
    */
   boolean DEFAULT_SEND_VARY_HEADER = true;
 
+  /**
+   * Default max size in bytes of the file content cache, 0 means file contents are not kept in memory
+   */
+  long DEFAULT_MAX_CONTENT_CACHE_SIZE = 0;
+
+  /**
+   * Default max size in bytes of a file for its content to be kept in memory
+   */
+  long DEFAULT_MAX_CONTENT_CACHE_FILE_SIZE = 65536; // 64KB
+
+  /**
+   * Default of whether precompressed files should be served
+   */
+  boolean DEFAULT_PRECOMPRESSED_FILES = false;
+
   /**
    * Create a handler using defaults
    *
@@ -295,4 +310,35 @@ public interface StaticHandler extends Handler<RoutingContext> {
    */
   @Fluent
   StaticHandler setDefaultContentEncoding(String contentEncoding);
+
+  /**
+   * Set the max size in bytes of the file content cache. When greater than 0 the content of small files is kept in
+   * memory and served without accessing the file system, as long as the cached file properties are valid.
+   *
+   * @param maxContentCacheSize the max total size in bytes of the cached files, 0 to disable the content cache
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setMaxContentCacheSize(long maxContentCacheSize);
+
+  /**
+   * Set the max size in bytes of a file for its content to be cached. Larger files are always sent from the file
+   * system.
+   *
+   * @param maxContentCacheFileSize the max size in bytes of a cached file
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setMaxContentCacheFileSize(long maxContentCacheFileSize);
+
+  /**
+   * Set whether precompressed files should be served. When enabled and the client accepts it, a {@code .br} (brotli)
+   * or {@code .gz} (gzip) file next to the requested file is sent instead, with the matching
+   * {@code Content-Encoding}. Which precompressed files exist is cached with the file properties.
+   *
+   * @param enablePrecompressedFiles true to serve precompressed files
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setEnablePrecompressedFiles(boolean enablePrecompressedFiles);
 }
@@ -25,10 +25,7 @@ import io.vertx.core.net.SocketAddress;
 import io.vertx.ext.web.handler.LoggerFormat;
 import io.vertx.ext.web.handler.LoggerHandler;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.impl.Utils;
-
-import java.text.DateFormat;
-import java.util.Date;
+import io.vertx.ext.web.impl.HttpDates;
 
 /** # Logger
  *
@@ -48,10 +45,6 @@ public class LoggerHandlerImpl implements LoggerHandler {
 
   private final io.vertx.core.logging.Logger logger = LoggerFactory.getLogger(this.getClass());
 
-  /** The Date formatter (UTC JS compatible format)
-   */
-  private final DateFormat dateTimeFormat = Utils.createRFC1123DateTimeFormatter();
-
   /** log before request or after
    */
   private final boolean immediate;
@@ -119,7 +112,7 @@ public class LoggerHandlerImpl implements LoggerHandler {
 
         message = String.format("%s - - [%s] \"%s %s %s\" %d %d \"%s\" \"%s\"",
           remoteClient,
-          dateTimeFormat.format(new Date(timestamp)),
+          HttpDates.format(timestamp),
           method,
           uri,
           versionFormatted,
@@ -18,7 +18,6 @@ package io.vertx.ext.web.handler.impl;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import io.vertx.ext.web.Cookie;
@@ -26,6 +25,8 @@ import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.Session;
 import io.vertx.ext.web.handler.SessionHandler;
 import io.vertx.ext.web.sstore.SessionStore;
+import io.vertx.ext.web.sstore.impl.CookieValueSessionStore;
+import io.vertx.ext.web.sstore.impl.WaitableSessionStore;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -106,7 +107,7 @@ public class SessionHandlerImpl implements SessionHandler {
       String sessionID = cookie.getValue();
       if (sessionID != null && sessionID.length() > minLength) {
         // we passed the OWASP min length requirements
-        getSession(context.vertx(), sessionID, res -> {
+        getSession(sessionID, res -> {
           if (res.succeeded()) {
             Session session = res.result();
             if (session != null) {
@@ -134,26 +135,9 @@ public class SessionHandlerImpl implements SessionHandler {
     context.next();
   }
 
-  private void getSession(Vertx vertx, String sessionID, Handler<AsyncResult<Session>> resultHandler) {
-    doGetSession(vertx, System.currentTimeMillis(), sessionID, resultHandler);
-  }
-
-  private void doGetSession(Vertx vertx, long startTime, String sessionID, Handler<AsyncResult<Session>> resultHandler) {
-    sessionStore.get(sessionID, res -> {
-      if (res.succeeded()) {
-        if (res.result() == null) {
-          // Can't find it so retry. This is necessary for clustered sessions as it can take sometime for the session
-          // to propagate across the cluster so if the next request for the session comes in quickly at a different
-          // node there is a possibility it isn't available yet.
-          long retryTimeout = sessionStore.retryTimeout();
-          if (retryTimeout > 0 && System.currentTimeMillis() - startTime < retryTimeout) {
-            vertx.setTimer(5, v -> doGetSession(vertx, startTime, sessionID, resultHandler));
-            return;
-          }
-        }
-      }
-      resultHandler.handle(res);
-    });
+  private void getSession(String sessionID, Handler<AsyncResult<Session>> resultHandler) {
+    // the session might not have propagated yet if it was just created at a different node
+    WaitableSessionStore.waitFor(sessionStore, sessionID, sessionStore.retryTimeout(), resultHandler);
   }
 
   private void addStoreSessionHandler(RoutingContext context) {
@@ -164,7 +148,16 @@ public class SessionHandlerImpl implements SessionHandler {
         // Store the session (only and only if there was no error)
         if (currentStatusCode >= 200 && currentStatusCode < 400) {
           session.setAccessed();
-          if (session.isRegenerated()) {
+          // decided before the headers are written, as the session might be kept in the cookie
+          final String value = CookieValueSessionStore.cookieValue(sessionStore, session);
+          if (value == null) {
+            log.error("Failed to store session: it is too large for a cookie");
+            // the client keeps its previous cookie, a new one is not sent
+            final Cookie cookie = context.getCookie(sessionCookieName);
+            if (cookie != null && !cookie.isFromUserAgent()) {
+              context.removeCookie(sessionCookieName);
+            }
+          } else if (session.isRegenerated()) {
             // this means that a session id has been changed, usually it means a session upgrade
             // (e.g.: anonymous to authenticated) or that the security requirements have changed
             // see: https://www.owasp.org/index.php/Session_Management_Cheat_Sheet#Session_ID_Life_Cycle
@@ -173,7 +166,7 @@ public class SessionHandlerImpl implements SessionHandler {
             final Cookie cookie = context.getCookie(sessionCookieName);
             // restore defaults
             cookie
-              .setValue(session.id())
+              .setValue(value)
               .setPath("/")
               .setSecure(sessionCookieSecure)
               .setHttpOnly(sessionCookieHttpOnly);
@@ -197,6 +190,14 @@ public class SessionHandlerImpl implements SessionHandler {
                 log.error("Failed to store session", res.cause());
               }
             });
+            final Cookie cookie = context.getCookie(sessionCookieName);
+            if (cookie != null && !value.equals(cookie.getValue())) {
+              cookie
+                .setValue(value)
+                .setPath("/")
+                .setSecure(sessionCookieSecure)
+                .setHttpOnly(sessionCookieHttpOnly);
+            }
           }
         } else {
           // don't send a cookie if status is not 2xx or 3xx
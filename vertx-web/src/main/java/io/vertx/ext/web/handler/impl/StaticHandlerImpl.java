@@ -16,7 +16,9 @@
 
 package io.vertx.ext.web.handler.impl;
 
+import io.netty.buffer.Unpooled;
 import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileProps;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.http.HttpMethod;
@@ -25,17 +27,21 @@ import io.vertx.core.http.impl.MimeMapping;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.ParsedHeaderValue;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.StaticHandler;
+import io.vertx.ext.web.impl.BoundedConcurrentCache;
+import io.vertx.ext.web.impl.HttpDates;
 import io.vertx.ext.web.impl.LRUCache;
 import io.vertx.ext.web.impl.Utils;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.text.DateFormat;
-import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,8 +58,14 @@ public class StaticHandlerImpl implements StaticHandler {
 
   private static final Logger log = LoggerFactory.getLogger(StaticHandlerImpl.class);
 
-  private final DateFormat dateTimeFormatter = Utils.createRFC1123DateTimeFormatter();
+  // the supported precompressed encodings, in order of preference when the client has none
+  private static final String[] ENCODINGS = {"br", "gzip"};
+  private static final String[] EXTENSIONS = {".br", ".gz"};
+  private static final int IDENTITY = -1;
+
   private Map<String, CacheEntry> propsCache;
+  private volatile BoundedConcurrentCache<String, ContentEntry> contentCache;
+  private final Set<String> contentLoading = ConcurrentHashMap.newKeySet();
   private String webRoot = DEFAULT_WEB_ROOT;
   private long maxAgeSeconds = DEFAULT_MAX_AGE_SECONDS; // One day
   private boolean directoryListing = DEFAULT_DIRECTORY_LISTING;
@@ -69,6 +81,9 @@ public class StaticHandlerImpl implements StaticHandler {
   private boolean allowRootFileSystemAccess = DEFAULT_ROOT_FILESYSTEM_ACCESS;
   private boolean sendVaryHeader = DEFAULT_SEND_VARY_HEADER;
   private String defaultContentEncoding = Charset.defaultCharset().name();
+  private long maxContentCacheSize = DEFAULT_MAX_CONTENT_CACHE_SIZE;
+  private long maxContentCacheFileSize = DEFAULT_MAX_CONTENT_CACHE_FILE_SIZE;
+  private boolean precompressedFiles = DEFAULT_PRECOMPRESSED_FILES;
 
   // These members are all related to auto tuning of synchronous vs asynchronous file system access
   private static int NUM_SERVES_TUNING_FS_ACCESS = 1000;
@@ -101,18 +116,20 @@ public class StaticHandlerImpl implements StaticHandler {
   /**
    * Create all required header so content can be cache by Caching servers or Browsers
    *
-   * @param request base HttpServerRequest
-   * @param props   file properties
+   * @param request      base HttpServerRequest
+   * @param lastModified the formatted last modified date of the file
+   * @param etag         the entity tag of the file
    */
-  private void writeCacheHeaders(HttpServerRequest request, FileProps props) {
+  private void writeCacheHeaders(HttpServerRequest request, String lastModified, String etag) {
 
     MultiMap headers = request.response().headers();
 
     if (cachingEnabled) {
-      // We use cache-control and last-modified
-      // We *do not use* etags and expires (since they do the same thing - redundant)
+      // We use cache-control, last-modified and etag
+      // We *do not use* expires (since it does the same thing as cache-control - redundant)
       headers.set("cache-control", "public, max-age=" + maxAgeSeconds);
-      headers.set("last-modified", dateTimeFormatter.format(props.lastModifiedTime()));
+      headers.set("last-modified", lastModified);
+      headers.set("etag", etag);
       // We send the vary header (for intermediate caches)
       // (assumes that most will turn on compression when using static handler)
       if (sendVaryHeader && request.headers().contains("accept-encoding")) {
@@ -121,7 +138,124 @@ public class StaticHandlerImpl implements StaticHandler {
     }
 
     // date header is mandatory
-    headers.set("date", dateTimeFormatter.format(new Date()));
+    headers.set("date", HttpDates.currentDate());
+  }
+
+  /**
+   * Create a strong entity tag from the last modified time and the size of a file
+   */
+  private static String etag(long lastModifiedTime, long size) {
+    return "\"" + Long.toHexString(lastModifiedTime) + '-' + Long.toHexString(size) + '"';
+  }
+
+  /**
+   * Create a strong entity tag for a precompressed version of a file, which is another representation of the file
+   * than the file itself so the encoding is part of the tag
+   */
+  private static String etag(long lastModifiedTime, long size, int encoding) {
+    if (encoding == IDENTITY) {
+      return etag(lastModifiedTime, size);
+    }
+    return "\"" + Long.toHexString(lastModifiedTime) + '-' + Long.toHexString(size) + '-' + ENCODINGS[encoding] + '"';
+  }
+
+  /**
+   * Evaluate the conditional headers of the request against the current version of a file. The request is ended with
+   * a 304 when the client copy is still valid and failed with a 412 when an {@code If-Match} precondition fails.
+   *
+   * @return true if the request has been handled and the file must not be sent
+   */
+  private boolean checkPreconditions(RoutingContext context, long lastModifiedTime, String etag) {
+    MultiMap headers = context.request().headers();
+
+    String ifMatch = headers.get("if-match");
+    if (ifMatch != null && !etagMatches(ifMatch, etag, false)) {
+      context.fail(PRECONDITION_FAILED.code());
+      return true;
+    }
+
+    String ifNoneMatch = headers.get("if-none-match");
+    if (ifNoneMatch != null) {
+      // when present if-modified-since must be ignored
+      if (etagMatches(ifNoneMatch, etag, true)) {
+        context.response().putHeader("etag", etag);
+        context.response().setStatusCode(NOT_MODIFIED.code()).end();
+        return true;
+      }
+      return false;
+    }
+
+    String ifModifiedSince = headers.get("if-modified-since");
+    if (ifModifiedSince != null) {
+      // invalid dates are ignored
+      long ifModifiedSinceDate = HttpDates.parse(ifModifiedSince);
+      if (ifModifiedSinceDate != -1 && Utils.secondsFactor(lastModifiedTime) <= ifModifiedSinceDate) {
+        context.response().setStatusCode(NOT_MODIFIED.code()).end();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check if an {@code If-Range} header allows a partial response for the current version of a file.
+   */
+  private boolean ifRangeMatches(HttpServerRequest request, CacheEntry entry) {
+    String ifRange = request.headers().get("if-range");
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      // weak tags never match
+      return ifRange.equals(entry.etag(IDENTITY));
+    }
+    return HttpDates.parse(ifRange) == Utils.secondsFactor(entry.props.lastModifiedTime());
+  }
+
+  /**
+   * Match an entity tag against the list of tags of an {@code If-Match} or {@code If-None-Match} header.
+   *
+   * @param weak true to use the weak comparison, where the weak indicator of the tags is ignored
+   */
+  private static boolean etagMatches(String header, String etag, boolean weak) {
+    int i = 0;
+    final int len = header.length();
+    while (i < len) {
+      char c = header.charAt(i);
+      if (c == ' ' || c == '\t' || c == ',') {
+        i++;
+        continue;
+      }
+      if (c == '*') {
+        return true;
+      }
+      int start = i;
+      boolean weakTag = header.startsWith("W/", i);
+      if (weakTag) {
+        i += 2;
+      }
+      if (i < len && header.charAt(i) == '"') {
+        int end = header.indexOf('"', i + 1);
+        if (end == -1) {
+          return false;
+        }
+        i = end + 1;
+      } else {
+        // not a valid tag, skip it
+        while (i < len && header.charAt(i) != ',') {
+          i++;
+        }
+        continue;
+      }
+      if (weakTag) {
+        if (weak && header.regionMatches(start + 2, etag, 0, etag.length()) && i - start - 2 == etag.length()) {
+          return true;
+        }
+      } else if (header.regionMatches(start, etag, 0, etag.length()) && i - start == etag.length()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -165,24 +299,47 @@ public class StaticHandlerImpl implements StaticHandler {
       }
     }
 
+    if (file == null) {
+      file = getFile(path, context);
+    }
+
+    final String sfile = file;
+
     // Look in cache
-    CacheEntry entry;
-    if (cachingEnabled) {
-      entry = propsCache().get(path);
-      if (entry != null) {
-        HttpServerRequest request = context.request();
-        if ((filesReadOnly || !entry.isOutOfDate()) && entry.shouldUseCached(request)) {
-          context.response().setStatusCode(NOT_MODIFIED.code()).end();
+    if (cachingEnabled || precompressedFiles) {
+      final CacheEntry entry = propsCache().get(path);
+      if (entry != null && (filesReadOnly || !entry.isOutOfDate())) {
+        final int encoding = selectEncoding(context, entry);
+        if (cachingEnabled && checkPreconditions(context, entry.props(encoding).lastModifiedTime(), entry.etag(encoding))) {
+          return;
+        }
+        if (encoding != IDENTITY) {
+          // the precompressed file is known to exist
+          sendEncoded(context, sfile, encoding, entry);
+          return;
+        }
+        // so is the file itself, its props are not read again
+        final ContentEntry content = contentCache == null ? null : contentCache.get(path);
+        // the content is as recent as the props when it was read from the same file
+        if (content != null && (filesReadOnly || !content.isOutOfDate() || content.isSameFile(entry.props))
+          && sendContent(context, content)) {
           return;
         }
+        sendFile(context, sfile, entry);
+        cacheContent(context, path, sfile, entry.props);
+        return;
       }
     }
 
-    if (file == null) {
-      file = getFile(path, context);
+    // Serve small files from memory, unless a precompressed file could be a better match
+    ContentEntry content = null;
+    if (contentCache != null && !precompressedFiles) {
+      content = contentCache.get(path);
+      if (content != null && (filesReadOnly || !content.isOutOfDate()) && sendContent(context, content)) {
+        return;
+      }
     }
-
-    final String sfile = file;
+    final ContentEntry scontent = content;
 
     // verify if the file exists
     isFileExisting(context, sfile, exists -> {
@@ -206,9 +363,11 @@ public class StaticHandlerImpl implements StaticHandler {
             context.next();
           } else if (fprops.isDirectory()) {
             sendDirectory(context, path, sfile);
+          } else if (precompressedFiles) {
+            getEncodedFileProps(context, sfile, 0, new FileProps[ENCODINGS.length], encoded ->
+              sendStaticFile(context, path, sfile, new CacheEntry(fprops, encoded, System.currentTimeMillis()), scontent));
           } else {
-            propsCache().put(path, new CacheEntry(fprops, System.currentTimeMillis()));
-            sendFile(context, sfile, fprops);
+            sendStaticFile(context, path, sfile, new CacheEntry(fprops, null, System.currentTimeMillis()), scontent);
           }
         } else {
           context.fail(res.cause());
@@ -217,6 +376,112 @@ public class StaticHandlerImpl implements StaticHandler {
     });
   }
 
+  private void sendStaticFile(RoutingContext context, String path, String file, CacheEntry entry, ContentEntry content) {
+    propsCache().put(path, entry);
+
+    final int encoding = selectEncoding(context, entry);
+    if (cachingEnabled && checkPreconditions(context, entry.props(encoding).lastModifiedTime(), entry.etag(encoding))) {
+      return;
+    }
+
+    if (encoding != IDENTITY) {
+      sendEncoded(context, file, encoding, entry);
+      return;
+    }
+
+    if (content != null && content.isSameFile(entry.props)) {
+      // the file did not change, keep serving it from memory
+      content.createDate = System.currentTimeMillis();
+      if (sendContent(context, content)) {
+        return;
+      }
+    }
+    sendFile(context, file, entry);
+    cacheContent(context, path, file, entry.props);
+  }
+
+  /**
+   * Read the props of the precompressed versions of a file, a missing version is recorded as {@code null}.
+   */
+  private void getEncodedFileProps(RoutingContext context, String file, int index, FileProps[] encoded, Handler<FileProps[]> handler) {
+    if (index == ENCODINGS.length) {
+      handler.handle(encoded);
+      return;
+    }
+    getFileProps(context, file + EXTENSIONS[index], res -> {
+      if (res.succeeded() && res.result() != null && res.result().isRegularFile()) {
+        encoded[index] = res.result();
+      }
+      getEncodedFileProps(context, file, index + 1, encoded, handler);
+    });
+  }
+
+  /**
+   * Select the precompressed version of a file to send, based on the preference order of the
+   * {@code Accept-Encoding} header of the request.
+   *
+   * @return the index of the encoding or {@link #IDENTITY} if the file itself must be sent
+   */
+  private int selectEncoding(RoutingContext context, CacheEntry entry) {
+    if (!entry.hasEncoded) {
+      return IDENTITY;
+    }
+    // partial content is always sent from the file itself
+    if (rangeSupport && context.request().headers().contains("Range")) {
+      return IDENTITY;
+    }
+
+    // the response depends on the accept-encoding header
+    context.response().headers().set("vary", "accept-encoding");
+
+    for (ParsedHeaderValue accepted : context.parsedHeaders().acceptEncoding()) {
+      if (accepted.weight() <= 0) {
+        // explicitly refused with q=0
+        continue;
+      }
+      final String value = accepted.value();
+      if ("identity".equalsIgnoreCase(value)) {
+        return IDENTITY;
+      }
+      for (int i = 0; i < ENCODINGS.length; i++) {
+        if (entry.encoded[i] != null && (ENCODINGS[i].equalsIgnoreCase(value) || "*".equals(value))) {
+          return i;
+        }
+      }
+    }
+    return IDENTITY;
+  }
+
+  private void sendEncoded(RoutingContext context, String file, int encoding, CacheEntry entry) {
+    HttpServerRequest request = context.request();
+    MultiMap headers = request.response().headers();
+
+    headers.set("Content-Encoding", ENCODINGS[encoding]);
+    headers.set("Content-Length", Long.toString(entry.props(encoding).size()));
+    writeCacheHeaders(request, entry.lastModified(encoding), entry.etag(encoding));
+    headers.set("vary", "accept-encoding");
+
+    if (request.method() == HttpMethod.HEAD) {
+      request.response().end();
+    } else {
+      // Wrap the sendFile operation into a TCCL switch, so the file resolver would find the file from the set
+      // classloader (if any).
+      wrapInTCCLSwitch(() -> {
+        // the content type is the one of the original file
+        String contentType = contentType(file);
+        if (contentType != null) {
+          request.response().putHeader("Content-Type", contentType);
+        }
+
+        return request.response().sendFile(file + EXTENSIONS[encoding], res -> {
+          if (res.failed()) {
+            context.fail(res.cause());
+          }
+        });
+      });
+    }
+  }
+
   private void sendDirectory(RoutingContext context, String path, String file) {
     if (directoryListing) {
       sendDirectoryListing(file, context);
@@ -309,8 +574,9 @@ public class StaticHandlerImpl implements StaticHandler {
 
   private static final Pattern RANGE = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
 
-  private void sendFile(RoutingContext context, String file, FileProps fileProps) {
+  private void sendFile(RoutingContext context, String file, CacheEntry entry) {
     HttpServerRequest request = context.request();
+    FileProps fileProps = entry.props;
 
     Long offset = null;
     Long end = null;
@@ -322,6 +588,11 @@ public class StaticHandlerImpl implements StaticHandler {
       // end byte is length - 1
       end = fileProps.size() - 1;
 
+      // a range for an older version of the file must be ignored
+      if (range != null && !ifRangeMatches(request, entry)) {
+        range = null;
+      }
+
       if (range != null) {
         Matcher m = RANGE.matcher(range);
         if (m.matches()) {
@@ -358,7 +629,7 @@ public class StaticHandlerImpl implements StaticHandler {
       headers.set("Content-Length", Long.toString(end + 1 - (offset == null ? 0 : offset)));
     }
 
-    writeCacheHeaders(request, fileProps);
+    writeCacheHeaders(request, entry.lastModified(IDENTITY), entry.etag(IDENTITY));
 
     if (request.method() == HttpMethod.HEAD) {
       request.response().end();
@@ -375,13 +646,9 @@ public class StaticHandlerImpl implements StaticHandler {
         final Long finalEnd = end;
         wrapInTCCLSwitch(() -> {
           // guess content type
-          String contentType = MimeMapping.getMimeTypeForFilename(file);
+          String contentType = contentType(file);
           if (contentType != null) {
-            if (contentType.startsWith("text")) {
-              request.response().putHeader("Content-Type", contentType + ";charset=" + defaultContentEncoding);
-            } else {
-              request.response().putHeader("Content-Type", contentType);
-            }
+            request.response().putHeader("Content-Type", contentType);
           }
 
           return request.response().sendFile(file, finalOffset, finalEnd + 1, res2 -> {
@@ -395,13 +662,9 @@ public class StaticHandlerImpl implements StaticHandler {
         // classloader (if any).
         wrapInTCCLSwitch(() -> {
           // guess content type
-          String contentType = MimeMapping.getMimeTypeForFilename(file);
+          String contentType = contentType(file);
           if (contentType != null) {
-            if (contentType.startsWith("text")) {
-              request.response().putHeader("Content-Type", contentType + ";charset=" + defaultContentEncoding);
-            } else {
-              request.response().putHeader("Content-Type", contentType);
-            }
+            request.response().putHeader("Content-Type", contentType);
           }
 
           return request.response().sendFile(file, res2 -> {
@@ -414,6 +677,87 @@ public class StaticHandlerImpl implements StaticHandler {
     }
   }
 
+  /**
+   * Send a file from the content cache.
+   *
+   * @return false if the request must be served from the file system
+   */
+  private boolean sendContent(RoutingContext context, ContentEntry entry) {
+    HttpServerRequest request = context.request();
+
+    if (rangeSupport && request.headers().contains("Range")) {
+      // partial content is always sent from the file system
+      return false;
+    }
+
+    if (cachingEnabled && checkPreconditions(context, entry.lastModifiedTime, entry.etag)) {
+      return true;
+    }
+
+    MultiMap headers = request.response().headers();
+    if (rangeSupport) {
+      headers.set("Accept-Ranges", "bytes");
+    }
+    headers.set("Content-Length", entry.contentLength);
+
+    writeCacheHeaders(request, entry.lastModified, entry.etag);
+
+    if (entry.contentType != null) {
+      headers.set("Content-Type", entry.contentType);
+    }
+
+    if (request.method() == HttpMethod.HEAD) {
+      request.response().end();
+    } else {
+      request.response().end(entry.content);
+    }
+    return true;
+  }
+
+  /**
+   * Load the content of a file into the content cache if it is small enough, the current request is not delayed.
+   */
+  private void cacheContent(RoutingContext context, String path, String file, FileProps props) {
+    if (maxContentCacheSize <= 0 || props.size() > maxContentCacheFileSize || props.size() > maxContentCacheSize) {
+      return;
+    }
+    // only one load per path at a time
+    if (!contentLoading.add(path)) {
+      return;
+    }
+
+    Handler<AsyncResult<Buffer>> handler = res -> {
+      contentLoading.remove(path);
+      if (res.succeeded() && res.result().length() == props.size()) {
+        contentCache().put(path, new ContentEntry(file, props, res.result()));
+      } else if (res.failed()) {
+        log.debug("Could not cache the content of " + file, res.cause());
+      }
+    };
+    FileSystem fs = context.vertx().fileSystem();
+    if (alwaysAsyncFS || useAsyncFS) {
+      wrapInTCCLSwitch(() -> fs.readFile(file, handler));
+    } else {
+      // the files are small, read them like their props are
+      Buffer content;
+      try {
+        content = wrapInTCCLSwitch(() -> fs.readFileBlocking(file));
+      } catch (RuntimeException e) {
+        handler.handle(Future.failedFuture(e.getCause()));
+        return;
+      }
+      handler.handle(Future.succeededFuture(content));
+    }
+  }
+
+  private String contentType(String file) {
+    String contentType = MimeMapping.getMimeTypeForFilename(file);
+    if (contentType != null && contentType.startsWith("text")) {
+      return contentType + ";charset=" + defaultContentEncoding;
+    }
+    return contentType;
+  }
+
   @Override
   public StaticHandler setAllowRootFileSystemAccess(boolean allowRootFileSystemAccess) {
     this.allowRootFileSystemAccess = allowRootFileSystemAccess;
@@ -533,6 +877,45 @@ public class StaticHandlerImpl implements StaticHandler {
     return this;
   }
 
+  @Override
+  public synchronized StaticHandler setMaxContentCacheSize(long maxContentCacheSize) {
+    if (maxContentCacheSize < 0) {
+      throw new IllegalArgumentException("maxContentCacheSize must be >= 0");
+    }
+    this.maxContentCacheSize = maxContentCacheSize;
+    if (contentCache != null) {
+      if (maxContentCacheSize == 0) {
+        contentCache = null;
+      } else {
+        contentCache.setMaxSize(maxContentCacheSize);
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public StaticHandler setEnablePrecompressedFiles(boolean enablePrecompressedFiles) {
+    this.precompressedFiles = enablePrecompressedFiles;
+    return this;
+  }
+
+  @Override
+  public StaticHandler setMaxContentCacheFileSize(long maxContentCacheFileSize) {
+    if (maxContentCacheFileSize < 0) {
+      throw new IllegalArgumentException("maxContentCacheFileSize must be >= 0");
+    }
+    this.maxContentCacheFileSize = maxContentCacheFileSize;
+    return this;
+  }
+
+  private synchronized BoundedConcurrentCache<String, ContentEntry> contentCache() {
+    if (contentCache == null) {
+      contentCache = new BoundedConcurrentCache<>(maxContentCacheSize, (path, entry) -> entry.content.length(), 0,
+        TimeUnit.MILLISECONDS);
+    }
+    return contentCache;
+  }
+
   private Map<String, CacheEntry> propsCache() {
     if (propsCache == null) {
       propsCache = new LRUCache<>(maxCacheSize);
@@ -540,14 +923,6 @@ public class StaticHandlerImpl implements StaticHandler {
     return propsCache;
   }
 
-  private Date parseDate(String header) {
-    try {
-      return dateTimeFormatter.parse(header);
-    } catch (ParseException e) {
-      throw new VertxException(e);
-    }
-  }
-
   private String getFile(String path, RoutingContext context) {
     String file = webRoot + Utils.pathOffset(path, context);
     if (log.isTraceEnabled()) log.trace("File to serve is " + file);
@@ -661,26 +1036,43 @@ public class StaticHandlerImpl implements StaticHandler {
     });
   }
 
-  // TODO make this static and use Java8 DateTimeFormatter
+  // TODO make this static
   private final class CacheEntry {
     final FileProps props;
+    // the props of the precompressed versions of the file, null when they are not looked up
+    final FileProps[] encoded;
+    final boolean hasEncoded;
+    // the header values of the file and its precompressed versions, at index encoding + 1
+    final String[] lastModified;
+    final String[] etags;
     long createDate;
 
-    private CacheEntry(FileProps props, long createDate) {
+    private CacheEntry(FileProps props, FileProps[] encoded, long createDate) {
       this.props = props;
+      this.encoded = encoded;
+      this.hasEncoded = encoded != null && Arrays.stream(encoded).anyMatch(Objects::nonNull);
+      this.lastModified = new String[ENCODINGS.length + 1];
+      this.etags = new String[ENCODINGS.length + 1];
+      for (int i = IDENTITY; i < ENCODINGS.length; i++) {
+        FileProps p = props(i);
+        if (p != null) {
+          lastModified[i + 1] = HttpDates.format(p.lastModifiedTime());
+          etags[i + 1] = StaticHandlerImpl.etag(p.lastModifiedTime(), p.size(), i);
+        }
+      }
       this.createDate = createDate;
     }
 
-    // return true if there are conditional headers present and they match what is in the entry
-    boolean shouldUseCached(HttpServerRequest request) {
-      String ifModifiedSince = request.headers().get("if-modified-since");
-      if (ifModifiedSince == null) {
-        // Not a conditional request
-        return false;
-      }
-      Date ifModifiedSinceDate = parseDate(ifModifiedSince);
-      boolean modifiedSince = Utils.secondsFactor(props.lastModifiedTime()) > ifModifiedSinceDate.getTime();
-      return !modifiedSince;
+    FileProps props(int encoding) {
+      return encoding == IDENTITY ? props : encoded == null ? null : encoded[encoding];
+    }
+
+    String lastModified(int encoding) {
+      return lastModified[encoding + 1];
+    }
+
+    String etag(int encoding) {
+      return etags[encoding + 1];
     }
 
     boolean isOutOfDate() {
@@ -689,5 +1081,40 @@ public class StaticHandlerImpl implements StaticHandler {
 
   }
 
+  /**
+   * The content of a small file held in a direct buffer, with the headers computed when it was loaded. The buffer is
+   * never released, so it can still be in flight when the entry is evicted, the memory is reclaimed by the GC.
+   */
+  private final class ContentEntry {
+    final Buffer content;
+    final long size;
+    final long lastModifiedTime;
+    final String contentLength;
+    final String contentType;
+    final String lastModified;
+    final String etag;
+    volatile long createDate;
+
+    private ContentEntry(String file, FileProps props, Buffer data) {
+      ByteBuffer direct = ByteBuffer.allocateDirect(data.length());
+      data.getByteBuf().readBytes(direct);
+      direct.flip();
+      this.content = Buffer.buffer(Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(direct)));
+      this.size = props.size();
+      this.lastModifiedTime = props.lastModifiedTime();
+      this.contentLength = Long.toString(size);
+      this.contentType = contentType(file);
+      this.lastModified = HttpDates.format(lastModifiedTime);
+      this.etag = etag(lastModifiedTime, size);
+      this.createDate = System.currentTimeMillis();
+    }
+
+    boolean isSameFile(FileProps props) {
+      return props.size() == size && props.lastModifiedTime() == lastModifiedTime;
+    }
 
+    boolean isOutOfDate() {
+      return System.currentTimeMillis() - createDate > cacheEntryTimeout;
+    }
+  }
 }
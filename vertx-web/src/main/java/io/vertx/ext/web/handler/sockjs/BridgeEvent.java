@@ -49,4 +49,13 @@ public interface BridgeEvent extends BaseBridgeEvent {
    */
   @CacheReturn
   SockJSSocket socket();
+
+  /**
+   * Forget the authorisation decisions cached for the socket of this event, e.g. after the permissions of its user
+   * have changed. This has no effect unless {@link BridgeOptions#setAuthorisationCacheTimeout(long)} is set.
+   *
+   * @return this reference, so it can be used fluently
+   */
+  @Fluent
+  BridgeEvent clearAuthorisations();
 }
@@ -52,10 +52,28 @@ public class BridgeOptions {
    */
   public static final long DEFAULT_REPLY_TIMEOUT = 30 * 1000;
 
+  /**
+   * Default value for shared consumers = false
+   */
+  public static final boolean DEFAULT_SHARED_CONSUMERS = false;
+
+  /**
+   * Default value for the authorisation cache timeout = 0, authorisations are not cached
+   */
+  public static final long DEFAULT_AUTHORISATION_CACHE_TIMEOUT = 0;
+
+  /**
+   * Default value for max pending replies = 100000
+   */
+  public static final int DEFAULT_MAX_PENDING_REPLIES = 100000;
+
   private int maxAddressLength;
   private int maxHandlersPerSocket;
   private long pingTimeout;
   private long replyTimeout;
+  private boolean sharedConsumers;
+  private long authorisationCacheTimeout;
+  private int maxPendingReplies;
 
   private List<PermittedOptions> inboundPermitted = new ArrayList<>();
   private List<PermittedOptions> outboundPermitted = new ArrayList<>();
@@ -70,6 +88,9 @@ public class BridgeOptions {
     this.maxHandlersPerSocket = other.maxHandlersPerSocket;
     this.pingTimeout = other.pingTimeout;
     this.replyTimeout = other.replyTimeout;
+    this.sharedConsumers = other.sharedConsumers;
+    this.authorisationCacheTimeout = other.authorisationCacheTimeout;
+    this.maxPendingReplies = other.maxPendingReplies;
     this.inboundPermitted = new ArrayList<>(other.inboundPermitted);
     this.outboundPermitted = new ArrayList<>(other.outboundPermitted);
   }
@@ -82,6 +103,9 @@ public class BridgeOptions {
     this.maxHandlersPerSocket = DEFAULT_MAX_HANDLERS_PER_SOCKET;
     this.pingTimeout = DEFAULT_PING_TIMEOUT;
     this.replyTimeout = DEFAULT_REPLY_TIMEOUT;
+    this.sharedConsumers = DEFAULT_SHARED_CONSUMERS;
+    this.authorisationCacheTimeout = DEFAULT_AUTHORISATION_CACHE_TIMEOUT;
+    this.maxPendingReplies = DEFAULT_MAX_PENDING_REPLIES;
   }
 
   /**
@@ -94,6 +118,9 @@ public class BridgeOptions {
     this.maxHandlersPerSocket = json.getInteger("maxHandlersPerSocket", DEFAULT_MAX_HANDLERS_PER_SOCKET);
     this.pingTimeout = json.getLong("pingTimeout", DEFAULT_PING_TIMEOUT);
     this.replyTimeout = json.getLong("replyTimeout", DEFAULT_REPLY_TIMEOUT);
+    this.sharedConsumers = json.getBoolean("sharedConsumers", DEFAULT_SHARED_CONSUMERS);
+    this.authorisationCacheTimeout = json.getLong("authorisationCacheTimeout", DEFAULT_AUTHORISATION_CACHE_TIMEOUT);
+    this.maxPendingReplies = json.getInteger("maxPendingReplies", DEFAULT_MAX_PENDING_REPLIES);
     //TODO simplify common code
     JsonArray arr = json.getJsonArray("inboundPermitteds");
     if (arr != null) {
@@ -167,6 +194,61 @@ public class BridgeOptions {
     return this;
   }
 
+  public int getMaxPendingReplies() {
+    return maxPendingReplies;
+  }
+
+  /**
+   * Set the max number of messages delivered to sockets that the bridge waits a reply for. The reply to a message
+   * delivered beyond this limit has to be permitted like any other inbound message.
+   *
+   * @param maxPendingReplies the max number of pending replies
+   * @return a reference to this, so the API can be used fluently
+   */
+  public BridgeOptions setMaxPendingReplies(int maxPendingReplies) {
+    if (maxPendingReplies < 1) {
+      throw new IllegalArgumentException("maxPendingReplies must be > 0");
+    }
+    this.maxPendingReplies = maxPendingReplies;
+    return this;
+  }
+
+  public boolean isSharedConsumers() {
+    return sharedConsumers;
+  }
+
+  /**
+   * Use a single event bus consumer per address for all the sockets registered on it. Messages are then encoded once
+   * and the same buffer is written to every socket allowed to receive them.
+   *
+   * @param sharedConsumers true to share consumers between sockets
+   * @return a reference to this, so the API can be used fluently
+   */
+  public BridgeOptions setSharedConsumers(boolean sharedConsumers) {
+    this.sharedConsumers = sharedConsumers;
+    return this;
+  }
+
+  public long getAuthorisationCacheTimeout() {
+    return authorisationCacheTimeout;
+  }
+
+  /**
+   * Cache the decisions of the authority checks of each socket for this time, in ms, instead of asking the user for
+   * every message requiring an authority. The decisions are forgotten when the socket is closed, when its web session
+   * is destroyed and on {@link BridgeEvent#clearAuthorisations()}.
+   *
+   * @param authorisationCacheTimeout the time to live of the decisions, 0 to not cache them
+   * @return a reference to this, so the API can be used fluently
+   */
+  public BridgeOptions setAuthorisationCacheTimeout(long authorisationCacheTimeout) {
+    if (authorisationCacheTimeout < 0) {
+      throw new IllegalArgumentException("authorisationCacheTimeout must be >= 0");
+    }
+    this.authorisationCacheTimeout = authorisationCacheTimeout;
+    return this;
+  }
+
   public BridgeOptions addInboundPermitted(PermittedOptions permitted) {
     inboundPermitted.add(permitted);
     return this;
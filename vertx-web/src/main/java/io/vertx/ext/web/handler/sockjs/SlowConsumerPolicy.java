@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs;
+
+import io.vertx.codegen.annotations.VertxGen;
+
+/**
+ * What a SockJS socket does with a message written while its write queue is full, i.e. when the client doesn't read
+ * its messages as fast as they are written.
+ */
+@VertxGen
+public enum SlowConsumerPolicy {
+
+  /**
+   * The message is dropped.
+   */
+  DROP_NEWEST,
+
+  /**
+   * The oldest queued messages are dropped to make room for the message.
+   */
+  DROP_OLDEST,
+
+  /**
+   * The message replaces the queued message for the same event bus address, if any, otherwise the oldest queued
+   * messages are dropped to make room for it. Messages not written by the event bus bridge have no address.
+   */
+  CONFLATE,
+
+  /**
+   * The queued messages are dropped and the socket is closed.
+   */
+  CLOSE
+}
@@ -81,6 +81,10 @@ public interface SockJSHandler extends Handler<RoutingContext> {
    * Bridge the SockJS handler to the Vert.x event bus. This basically installs a built-in SockJS socket handler
    * which takes SockJS traffic and bridges it to the event bus, thus allowing you to extend the server-side
    * Vert.x event bus to browsers
+   * <p>
+   * When websockets are enabled, the bridge also accepts raw websockets on {@code <prefix>/websocket/binary},
+   * exchanging compact length-prefixed binary envelopes, several envelopes per websocket message, instead of the JSON
+   * envelopes. A message body can then be raw bytes, sent and received as a {@link io.vertx.core.buffer.Buffer}.
    *
    * @param bridgeOptions  options to configure the bridge with
    * @return a reference to this, so the API can be used fluently
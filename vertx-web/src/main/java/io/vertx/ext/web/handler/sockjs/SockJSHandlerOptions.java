@@ -34,12 +34,19 @@ public class SockJSHandlerOptions {
   public static final boolean DEFAULT_INSERT_JSESSIONID = true;
   public static final long DEFAULT_HEARTBEAT_INTERVAL = 25L * 1000;
   public static final int DEFAULT_MAX_BYTES_STREAMING = 128 * 1024;
+  public static final long DEFAULT_TIMER_GRANULARITY = 100;
+  public static final long DEFAULT_WRITE_FLUSH_DELAY = 0;
+  public static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = 64 * 1024;
   public static final String DEFAULT_LIBRARY_URL = "//cdn.jsdelivr.net/sockjs/0.3.4/sockjs.min.js";
 
   private long sessionTimeout;
   private boolean insertJSESSIONID;
   private long heartbeatInterval;
   private int maxBytesStreaming;
+  private long timerGranularity;
+  private long writeFlushDelay;
+  private int writeQueueMaxSize;
+  private SlowConsumerPolicy slowConsumerPolicy;
   private String libraryURL;
   private Set<String> disabledTransports = new HashSet<>();
 
@@ -52,6 +59,9 @@ public class SockJSHandlerOptions {
     this.insertJSESSIONID = DEFAULT_INSERT_JSESSIONID;
     this.heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
     this.maxBytesStreaming = DEFAULT_MAX_BYTES_STREAMING;
+    this.timerGranularity = DEFAULT_TIMER_GRANULARITY;
+    this.writeFlushDelay = DEFAULT_WRITE_FLUSH_DELAY;
+    this.writeQueueMaxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
     this.libraryURL = DEFAULT_LIBRARY_URL;
   }
 
@@ -60,6 +70,13 @@ public class SockJSHandlerOptions {
     this.insertJSESSIONID = json.getBoolean("insertJSESSIONID", DEFAULT_INSERT_JSESSIONID);
     this.heartbeatInterval = json.getLong("heartbeatInterval", DEFAULT_HEARTBEAT_INTERVAL);
     this.maxBytesStreaming = json.getInteger("maxBytesStreaming", DEFAULT_MAX_BYTES_STREAMING);
+    this.timerGranularity = json.getLong("timerGranularity", DEFAULT_TIMER_GRANULARITY);
+    this.writeFlushDelay = json.getLong("writeFlushDelay", DEFAULT_WRITE_FLUSH_DELAY);
+    this.writeQueueMaxSize = json.getInteger("writeQueueMaxSize", DEFAULT_WRITE_QUEUE_MAX_SIZE);
+    String policy = json.getString("slowConsumerPolicy");
+    if (policy != null) {
+      this.slowConsumerPolicy = SlowConsumerPolicy.valueOf(policy);
+    }
     this.libraryURL = json.getString("libraryURL", DEFAULT_LIBRARY_URL);
     JsonArray arr = json.getJsonArray("disabledTransports");
     if (arr != null) {
@@ -119,6 +136,80 @@ public class SockJSHandlerOptions {
     return this;
   }
 
+  public long getTimerGranularity() {
+    return timerGranularity;
+  }
+
+  /**
+   * Set the granularity of the timers driving the heartbeats and timeouts of the sessions, and the ping checks of the
+   * event bus bridge. The timers of all the sessions of an event loop are batched on ticks of this duration.
+   *
+   * @param timerGranularity the granularity, in ms
+   * @return a reference to this, so the API can be used fluently
+   */
+  public SockJSHandlerOptions setTimerGranularity(long timerGranularity) {
+    if (timerGranularity < 1) {
+      throw new IllegalArgumentException("timerGranularity must be > 0");
+    }
+    this.timerGranularity = timerGranularity;
+    return this;
+  }
+
+  public long getWriteFlushDelay() {
+    return writeFlushDelay;
+  }
+
+  /**
+   * Set how long the messages written to a session are collected before they are sent in a single frame. With the
+   * default of 0 the messages written during an event loop tick are sent together at the end of the tick.
+   * A positive delay runs on the timers of the sessions, so it is rounded up to the timer granularity.
+   *
+   * @param writeFlushDelay the delay, in ms
+   * @return a reference to this, so the API can be used fluently
+   */
+  public SockJSHandlerOptions setWriteFlushDelay(long writeFlushDelay) {
+    if (writeFlushDelay < 0) {
+      throw new IllegalArgumentException("writeFlushDelay must be >= 0");
+    }
+    this.writeFlushDelay = writeFlushDelay;
+    return this;
+  }
+
+  public int getWriteQueueMaxSize() {
+    return writeQueueMaxSize;
+  }
+
+  /**
+   * Set the initial write queue max size of the sockets, in bytes. The queue is full once it holds this many bytes
+   * not yet sent to the client.
+   *
+   * @param writeQueueMaxSize the max size, in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  public SockJSHandlerOptions setWriteQueueMaxSize(int writeQueueMaxSize) {
+    if (writeQueueMaxSize < 1) {
+      throw new IllegalArgumentException("writeQueueMaxSize must be > 0");
+    }
+    this.writeQueueMaxSize = writeQueueMaxSize;
+    return this;
+  }
+
+  public SlowConsumerPolicy getSlowConsumerPolicy() {
+    return slowConsumerPolicy;
+  }
+
+  /**
+   * Set what the sockets do with the messages written while their write queue is full. By default there is no policy
+   * and the queue keeps growing, it is up to the application to check {@link SockJSSocket#writeQueueFull()}.
+   *
+   * @param slowConsumerPolicy the policy, or {@code null} for none
+   * @return a reference to this, so the API can be used fluently
+   */
+  public SockJSHandlerOptions setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+    this.slowConsumerPolicy = slowConsumerPolicy;
+    return this;
+  }
+
   public String getLibraryURL() {
     return libraryURL;
   }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.web.Session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The authorisation decisions of the user of a bridged socket, by authority, so messages requiring an authority don't
+ * each query the auth provider. Concurrent checks of the same authority share a single lookup, failed lookups are not
+ * cached.
+ * <p>
+ * The decisions are forgotten after the timeout, when the socket user changes or its web session is destroyed, and
+ * on {@link #clear()}.
+ * <p>
+ * This class is thread-safe
+ */
+final class AuthorisationCache {
+
+  private final long timeout;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private User user;
+
+  AuthorisationCache(long timeout) {
+    this.timeout = timeout;
+  }
+
+  void authorise(User user, Session session, String authority, Handler<AsyncResult<Boolean>> handler) {
+    if (session != null && session.isDestroyed()) {
+      // logged out
+      clear();
+      user.isAuthorised(authority, handler);
+      return;
+    }
+    final Entry entry;
+    final boolean lookup;
+    final Boolean result;
+    synchronized (this) {
+      if (user != this.user) {
+        entries.clear();
+        this.user = user;
+      }
+      Entry current = entries.get(authority);
+      if (current != null && current.waiters == null && current.expires <= System.currentTimeMillis()) {
+        current = null;
+      }
+      lookup = current == null;
+      if (lookup) {
+        current = new Entry();
+        entries.put(authority, current);
+      }
+      entry = current;
+      if (entry.waiters != null) {
+        entry.waiters.add(handler);
+        result = null;
+      } else {
+        result = entry.result;
+      }
+    }
+    if (result != null) {
+      handler.handle(Future.succeededFuture(result));
+    } else if (lookup) {
+      user.isAuthorised(authority, res -> {
+        List<Handler<AsyncResult<Boolean>>> waiters;
+        synchronized (this) {
+          waiters = entry.waiters;
+          entry.waiters = null;
+          if (res.succeeded() && entries.get(authority) == entry) {
+            entry.result = res.result();
+            entry.expires = System.currentTimeMillis() + timeout;
+          } else {
+            entries.remove(authority, entry);
+          }
+        }
+        for (Handler<AsyncResult<Boolean>> waiter : waiters) {
+          waiter.handle(res);
+        }
+      });
+    }
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    user = null;
+  }
+
+  private static final class Entry {
+    // null once the lookup is complete
+    List<Handler<AsyncResult<Boolean>>> waiters = new ArrayList<>();
+    Boolean result;
+    long expires;
+  }
+}
@@ -68,20 +68,24 @@ class BaseTransport {
   protected final Vertx vertx;
   protected final LocalMap<String, SockJSSession> sessions;
   protected SockJSHandlerOptions options;
+  protected final SockJSSession.WriteCounters counters;
 
   protected static final String COMMON_PATH_ELEMENT_RE = "\\/[^\\/\\.]+\\/([^\\/\\.]+)\\/";
 
   private static final long RAND_OFFSET = 2L << 30;
 
-  public BaseTransport(Vertx vertx, LocalMap<String, SockJSSession> sessions, SockJSHandlerOptions options) {
+  public BaseTransport(Vertx vertx, LocalMap<String, SockJSSession> sessions, SockJSHandlerOptions options,
+                       SockJSSession.WriteCounters counters) {
     this.vertx = vertx;
     this.sessions = sessions;
     this.options = options;
+    this.counters = counters;
   }
 
   protected SockJSSession getSession(RoutingContext rc, long timeout, long heartbeatInterval, String sessionID,
                                      Handler<SockJSSocket> sockHandler) {
-    SockJSSession session = sessions.computeIfAbsent(sessionID, s -> new SockJSSession(vertx, sessions, rc, s, timeout, heartbeatInterval, sockHandler));
+    SockJSSession session = sessions.computeIfAbsent(sessionID, s -> new SockJSSession(vertx, sessions, rc, s, timeout, heartbeatInterval,
+      options, counters, sockHandler));
     return session;
   }
 
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The compact binary envelopes of the raw websocket endpoint of the bridge. A websocket message holds one or more
+ * envelopes, each prefixed by its length so that several messages can be batched in a single frame:
+ * <pre>
+ * envelope     = length:int32 type:uint8 flags:uint8 address [replyAddress] [headers] [extra] body
+ * address      = string, empty when there is no address
+ * replyAddress = string, when flags has REPLY_ADDRESS
+ * headers      = count:uint16 (name:string value:string)*, when flags has HEADERS
+ * extra        = length:int32 UTF-8 JSON object of the other fields of the envelope, when flags has EXTRA
+ * body         = kind:uint8 [length:int32 bytes], the bytes are a UTF-8 JSON value or the raw bytes of a buffer
+ * string       = length:uint16 UTF-8 bytes
+ * </pre>
+ * Integers are big endian. The types are the ones of the JSON envelopes, a type without a code is sent as
+ * {@link #TYPE_OTHER} with the type in the extra fields. A header with several values is repeated.
+ * <p>
+ * This class is thread-safe
+ */
+final class BinaryBridgeCodec implements BridgeCodec {
+
+  static final BinaryBridgeCodec INSTANCE = new BinaryBridgeCodec();
+
+  // the type codes are the indexes
+  static final List<String> TYPES = Arrays.asList("send", "publish", "register", "unregister", "ping", "rec", "err");
+  static final int TYPE_OTHER = 0xFF;
+
+  static final int FLAG_REPLY_ADDRESS = 1;
+  static final int FLAG_HEADERS = 2;
+  static final int FLAG_EXTRA = 4;
+
+  static final int BODY_NULL = 0;
+  static final int BODY_JSON = 1;
+  static final int BODY_BINARY = 2;
+
+  private static final Set<String> FIELDS = new HashSet<>(Arrays.asList("type", "address", "replyAddress", "headers", "body"));
+  private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+  private BinaryBridgeCodec() {
+  }
+
+  @Override
+  public List<JsonObject> decode(Buffer data) {
+    List<JsonObject> envelopes = new ArrayList<>(1);
+    Reader in = new Reader(data, 0, data.length());
+    while (in.pos < in.end) {
+      int length = in.readInt();
+      if (length < 0 || length > in.end - in.pos) {
+        throw new DecodeException("Invalid envelope length " + length);
+      }
+      envelopes.add(decode(new Reader(data, in.pos, in.pos + length)));
+      in.pos += length;
+    }
+    return envelopes;
+  }
+
+  private static JsonObject decode(Reader in) {
+    JsonObject envelope = new JsonObject();
+    int type = in.readByte();
+    int flags = in.readByte();
+    if (type < TYPES.size()) {
+      envelope.put("type", TYPES.get(type));
+    } else if (type != TYPE_OTHER) {
+      throw new DecodeException("Invalid type " + type);
+    }
+    String address = in.readString();
+    if (!address.isEmpty()) {
+      envelope.put("address", address);
+    }
+    if ((flags & FLAG_REPLY_ADDRESS) != 0) {
+      envelope.put("replyAddress", in.readString());
+    }
+    if ((flags & FLAG_HEADERS) != 0) {
+      JsonObject headers = new JsonObject();
+      for (int count = in.readShort(); count > 0; count--) {
+        String name = in.readString();
+        String value = in.readString();
+        Object current = headers.getValue(name);
+        if (current == null) {
+          headers.put(name, value);
+        } else if (current instanceof JsonArray) {
+          ((JsonArray) current).add(value);
+        } else {
+          headers.put(name, new JsonArray().add(current).add(value));
+        }
+      }
+      envelope.put("headers", headers);
+    }
+    if ((flags & FLAG_EXTRA) != 0) {
+      JsonObject extra = new JsonObject(in.readString(in.readInt()));
+      for (Map.Entry<String, Object> field : extra.getMap().entrySet()) {
+        envelope.getMap().putIfAbsent(field.getKey(), field.getValue());
+      }
+    }
+    int kind = in.readByte();
+    switch (kind) {
+      case BODY_NULL:
+        break;
+      case BODY_JSON:
+        envelope.put("body", decodeValue(in.readString(in.readInt())));
+        break;
+      case BODY_BINARY:
+        envelope.getMap().put("body", in.readBuffer(in.readInt()));
+        break;
+      default:
+        throw new DecodeException("Invalid body kind " + kind);
+    }
+    if (in.pos != in.end) {
+      throw new DecodeException("Unexpected bytes after the body");
+    }
+    return envelope;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object decodeValue(String json) {
+    Object value = Json.decodeValue(json, Object.class);
+    if (value instanceof Map) {
+      return new JsonObject((Map<String, Object>) value);
+    }
+    if (value instanceof List) {
+      return new JsonArray((List) value);
+    }
+    return value;
+  }
+
+  @Override
+  public Buffer encode(JsonObject envelope) {
+    Buffer buffer = Buffer.buffer(128);
+    encode(envelope, buffer);
+    return buffer;
+  }
+
+  /**
+   * Append the envelope to the buffer.
+   */
+  static void encode(JsonObject envelope, Buffer buffer) {
+    int start = buffer.length();
+    buffer.appendInt(0);
+
+    String type = envelope.getString("type");
+    int code = type == null ? -1 : TYPES.indexOf(type);
+    String replyAddress = envelope.getString("replyAddress");
+    JsonObject headers = envelope.getJsonObject("headers");
+    JsonObject extra = null;
+    for (Map.Entry<String, Object> field : envelope.getMap().entrySet()) {
+      if (!FIELDS.contains(field.getKey())) {
+        if (extra == null) {
+          extra = new JsonObject();
+        }
+        extra.put(field.getKey(), field.getValue());
+      }
+    }
+    if (code == -1) {
+      code = TYPE_OTHER;
+      if (type != null) {
+        if (extra == null) {
+          extra = new JsonObject();
+        }
+        extra.put("type", type);
+      }
+    }
+    int flags = (replyAddress != null ? FLAG_REPLY_ADDRESS : 0)
+      | (headers != null ? FLAG_HEADERS : 0)
+      | (extra != null ? FLAG_EXTRA : 0);
+    buffer.appendByte((byte) code).appendByte((byte) flags);
+
+    String address = envelope.getString("address");
+    appendString(buffer, address == null ? "" : address);
+    if (replyAddress != null) {
+      appendString(buffer, replyAddress);
+    }
+    if (headers != null) {
+      int countPos = buffer.length();
+      buffer.appendShort((short) 0);
+      int count = 0;
+      for (Map.Entry<String, Object> header : headers) {
+        if (header.getValue() instanceof JsonArray) {
+          for (Object value : (JsonArray) header.getValue()) {
+            appendString(buffer, header.getKey());
+            appendString(buffer, String.valueOf(value));
+            count++;
+          }
+        } else {
+          appendString(buffer, header.getKey());
+          appendString(buffer, String.valueOf(header.getValue()));
+          count++;
+        }
+      }
+      if (count > MAX_STRING_LENGTH) {
+        throw new IllegalArgumentException("Too many headers " + count);
+      }
+      buffer.setShort(countPos, (short) count);
+    }
+    if (extra != null) {
+      appendBytes(buffer, extra.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    Object body = envelope.getValue("body");
+    if (body == null) {
+      buffer.appendByte((byte) BODY_NULL);
+    } else if (body instanceof Buffer) {
+      Buffer bytes = (Buffer) body;
+      buffer.appendByte((byte) BODY_BINARY).appendInt(bytes.length()).appendBuffer(bytes);
+    } else {
+      String json;
+      if (body instanceof JsonObject) {
+        json = ((JsonObject) body).encode();
+      } else if (body instanceof JsonArray) {
+        json = ((JsonArray) body).encode();
+      } else {
+        json = Json.encode(body);
+      }
+      buffer.appendByte((byte) BODY_JSON);
+      appendBytes(buffer, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    buffer.setInt(start, buffer.length() - start - 4);
+  }
+
+  private static void appendString(Buffer buffer, String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING_LENGTH) {
+      throw new IllegalArgumentException("String too long for a binary envelope " + bytes.length);
+    }
+    buffer.appendShort((short) bytes.length).appendBytes(bytes);
+  }
+
+  private static void appendBytes(Buffer buffer, byte[] bytes) {
+    buffer.appendInt(bytes.length).appendBytes(bytes);
+  }
+
+  @Override
+  public String decodeError() {
+    return "invalid_envelope";
+  }
+
+  private static final class Reader {
+    final Buffer data;
+    final int end;
+    int pos;
+
+    Reader(Buffer data, int pos, int end) {
+      this.data = data;
+      this.pos = pos;
+      this.end = end;
+    }
+
+    private int advance(int n) {
+      if (n < 0 || n > end - pos) {
+        throw new DecodeException("Truncated envelope");
+      }
+      int at = pos;
+      pos += n;
+      return at;
+    }
+
+    int readByte() {
+      return data.getByte(advance(1)) & 0xFF;
+    }
+
+    int readShort() {
+      return data.getShort(advance(2)) & 0xFFFF;
+    }
+
+    int readInt() {
+      return data.getInt(advance(4));
+    }
+
+    String readString() {
+      return readString(readShort());
+    }
+
+    String readString(int length) {
+      int at = advance(length);
+      return data.getString(at, at + length, "UTF-8");
+    }
+
+    Buffer readBuffer(int length) {
+      int at = advance(length);
+      return data.getBuffer(at, at + length);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The wire format of the envelopes exchanged by the event bus bridge and a socket. Whatever the format, the bridge
+ * works on {@link JsonObject} envelopes, so the permissions and the bridge events are the same for all the sockets.
+ * <p>
+ * A {@link io.vertx.core.buffer.Buffer} body is kept as is in the envelope, it is not a valid JSON value.
+ */
+interface BridgeCodec {
+
+  /**
+   * The JSON envelopes of {@code vertx-eventbus.js}, one per SockJS message.
+   */
+  BridgeCodec JSON = new BridgeCodec() {
+    @Override
+    public List<JsonObject> decode(Buffer data) {
+      return Collections.singletonList(new JsonObject(data.toString()));
+    }
+
+    @Override
+    public Buffer encode(JsonObject envelope) {
+      Object body = envelope.getValue("body");
+      if (body instanceof Buffer) {
+        envelope = EventBusBridgeImpl.copy(envelope);
+        envelope.put("body", ((Buffer) body).getBytes());
+      }
+      return Buffer.buffer(envelope.encode());
+    }
+
+    @Override
+    public String decodeError() {
+      return "invalid_json";
+    }
+  };
+
+  /**
+   * @return the envelopes of a message received from the socket
+   * @throws DecodeException when the message is malformed
+   */
+  List<JsonObject> decode(Buffer data);
+
+  /**
+   * @return the message to write to the socket
+   */
+  Buffer encode(JsonObject envelope);
+
+  /**
+   * @return the error sent back to the socket for a malformed message
+   */
+  String decodeError();
+}
@@ -32,6 +32,7 @@ class BridgeEventImpl implements BridgeEvent {
   private final JsonObject rawMessage;
   private final SockJSSocket socket;
   private Future<Boolean> future;
+  private AuthorisationCache authorisations;
 
   public BridgeEventImpl(BridgeEventType type, JsonObject rawMessage, SockJSSocket socket) {
     this.type = type;
@@ -67,10 +68,22 @@ class BridgeEventImpl implements BridgeEvent {
     return socket;
   }
 
+  @Override
+  public BridgeEvent clearAuthorisations() {
+    if (authorisations != null) {
+      authorisations.clear();
+    }
+    return this;
+  }
+
   public void setFuture(Future<Boolean> future) {
     this.future = future;
   }
 
+  void setAuthorisations(AuthorisationCache authorisations) {
+    this.authorisations = authorisations;
+  }
+
   @Override
   public boolean isComplete() {
     return future.isComplete();
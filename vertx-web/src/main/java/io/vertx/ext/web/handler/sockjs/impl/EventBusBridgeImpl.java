@@ -37,6 +37,7 @@ import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.*;
 import io.vertx.core.http.CaseInsensitiveHeaders;
 import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -50,11 +51,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static io.vertx.core.buffer.Buffer.buffer;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -64,43 +65,57 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
   private static final Logger log = LoggerFactory.getLogger(EventBusBridgeImpl.class);
 
   private final Map<SockJSSocket, SockInfo> sockInfos = new HashMap<>();
-  private final List<PermittedOptions> inboundPermitted;
-  private final List<PermittedOptions> outboundPermitted;
+  private final PermissionMatcher inboundPermitted;
+  private final PermissionMatcher outboundPermitted;
   private final int maxAddressLength;
   private final int maxHandlersPerSocket;
   private final long pingTimeout;
   private final long replyTimeout;
+  private final long timerGranularity;
   private final Vertx vertx;
   private final EventBus eb;
-  private final Map<String, Message> messagesAwaitingReply = new HashMap<>();
-  private final Map<String, Pattern> compiledREs = new HashMap<>();
+  private final ReplyRegistry messagesAwaitingReply;
+  private final ConcurrentMap<String, FanOut> fanOuts = new ConcurrentHashMap<>();
   private final Handler<BridgeEvent> bridgeEventHandler;
+  private final boolean sharedConsumers;
+  private final long authorisationCacheTimeout;
 
   public EventBusBridgeImpl(Vertx vertx, BridgeOptions options, Handler<BridgeEvent> bridgeEventHandler) {
+    this(vertx, options, bridgeEventHandler, SockJSHandlerOptions.DEFAULT_TIMER_GRANULARITY);
+  }
+
+  public EventBusBridgeImpl(Vertx vertx, BridgeOptions options, Handler<BridgeEvent> bridgeEventHandler, long timerGranularity) {
     this.vertx = vertx;
+    this.timerGranularity = timerGranularity;
     this.eb = vertx.eventBus();
-    this.inboundPermitted = options.getInboundPermitteds() == null ? new ArrayList<>() : options.getInboundPermitteds();
-    this.outboundPermitted = options.getOutboundPermitteds() == null ? new ArrayList<>() : options.getOutboundPermitteds();
+    this.inboundPermitted = new PermissionMatcher(options.getInboundPermitteds() == null ? new ArrayList<>() : options.getInboundPermitteds());
+    this.outboundPermitted = new PermissionMatcher(options.getOutboundPermitteds() == null ? new ArrayList<>() : options.getOutboundPermitteds());
     this.maxAddressLength = options.getMaxAddressLength();
     this.maxHandlersPerSocket = options.getMaxHandlersPerSocket();
     this.pingTimeout = options.getPingTimeout();
     this.replyTimeout = options.getReplyTimeout();
+    this.messagesAwaitingReply = new ReplyRegistry(vertx, replyTimeout, timerGranularity, options.getMaxPendingReplies());
+    this.sharedConsumers = options.isSharedConsumers();
+    this.authorisationCacheTimeout = options.getAuthorisationCacheTimeout();
     this.bridgeEventHandler = bridgeEventHandler;
   }
 
-  private void handleSocketClosed(SockJSSocket sock, Map<String, MessageConsumer> registrations) {
+  private void handleSocketClosed(SockJSSocket sock, Map<String, Runnable> registrations) {
     // On close unregister any handlers that haven't been unregistered
-    registrations.forEach((key, value) -> {
-      value.unregister();
+    registrations.forEach((address, unregister) -> {
+      unregister.run();
       checkCallHook(() -> new BridgeEventImpl(BridgeEventType.UNREGISTER,
-        new JsonObject().put("type", "unregister").put("address", value.address()), sock), null, null);
+        new JsonObject().put("type", "unregister").put("address", address), sock), null, null);
     });
 
     SockInfo info = sockInfos.remove(sock);
     if (info != null) {
+      if (info.authorisations != null) {
+        info.authorisations.clear();
+      }
       PingInfo pingInfo = info.pingInfo;
-      if (pingInfo != null) {
-        vertx.cancelTimer(pingInfo.timerID);
+      if (pingInfo != null && pingInfo.timeout != null) {
+        pingInfo.timeout.cancel();
       }
     }
 
@@ -108,16 +123,23 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
       null, null);
   }
 
-  private void handleSocketData(SockJSSocket sock, Buffer data, Map<String, MessageConsumer> registrations) {
-    JsonObject msg;
+  private void handleSocketData(SockJSSocket sock, Buffer data, Map<String, Runnable> registrations) {
+    BridgeCodec codec = codec(sock);
+    List<JsonObject> msgs;
 
     try {
-      msg = new JsonObject(data.toString());
+      msgs = codec.decode(data);
     } catch (DecodeException e) {
-      replyError(sock, "invalid_json");
+      replyError(sock, codec.decodeError());
       return;
     }
 
+    for (JsonObject msg : msgs) {
+      handleSocketMessage(sock, msg, registrations);
+    }
+  }
+
+  private void handleSocketMessage(SockJSSocket sock, JsonObject msg, Map<String, Runnable> registrations) {
     String type = msg.getString("type");
     if (type == null) {
       replyError(sock, "missing_type");
@@ -160,6 +182,10 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
       }
     } else {
       BridgeEventImpl event = eventSupplier.get();
+      SockInfo info = event.socket() == null ? null : sockInfos.get(event.socket());
+      if (info != null) {
+        event.setAuthorisations(info.authorisations);
+      }
       Future<Boolean> fut = Future.future();
       event.setFuture(fut);
       bridgeEventHandler.handle(event);
@@ -205,7 +231,7 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
     }
   }
 
-  private void internalHandleRegister(SockJSSocket sock, JsonObject rawMsg, Map<String, MessageConsumer> registrations) {
+  private void internalHandleRegister(SockJSSocket sock, JsonObject rawMsg, Map<String, Runnable> registrations) {
     final SockInfo info = sockInfos.get(sock);
     if (!checkMaxHandlers(sock, info)) {
       return;
@@ -224,38 +250,7 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
         }
         Match match = checkMatches(false, address, null);
         if (match.doesMatch) {
-          Handler<Message<Object>> handler = msg -> {
-            Match curMatch = checkMatches(false, address, msg.body());
-            if (curMatch.doesMatch) {
-              if (curMatch.requiredAuthority != null) {
-                authorise(curMatch, sock.webUser(), res -> {
-                  if (res.succeeded()) {
-                    if (res.result()) {
-                      checkAddAccceptedReplyAddress(msg);
-                      deliverMessage(sock, address, msg);
-                    } else {
-                      if (debug) {
-                        log.debug("Outbound message for address " + address + " rejected because auth is required and socket is not authed");
-                      }
-                    }
-                  } else {
-                    log.error(res.cause());
-                  }
-                });
-
-              } else {
-                checkAddAccceptedReplyAddress(msg);
-                deliverMessage(sock, address, msg);
-              }
-            } else {
-              // outbound match failed
-              if (debug) {
-                log.debug("Outbound message for address " + address + " rejected because there is no inbound match");
-              }
-            }
-          };
-          MessageConsumer reg = eb.consumer(address).handler(handler);
-          registrations.put(address, reg);
+          registrations.put(address, sharedConsumers ? subscribe(sock, address) : consume(sock, address));
           info.handlerCount++;
         } else {
           // inbound match failed
@@ -267,7 +262,43 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
       }, () -> replyError(sock, "rejected"));
   }
 
-  private void internalHandleUnregister(SockJSSocket sock, JsonObject rawMsg, Map<String, MessageConsumer> registrations) {
+  private Runnable consume(SockJSSocket sock, String address) {
+    final boolean debug = log.isDebugEnabled();
+    Handler<Message<Object>> handler = msg -> {
+      Match curMatch = checkMatches(false, address, msg.body());
+      if (curMatch.doesMatch) {
+        if (curMatch.requiredAuthority != null) {
+          authorise(curMatch, sock, sock.webUser(), res -> {
+            if (res.succeeded()) {
+              if (res.result()) {
+                checkAddAccceptedReplyAddress(msg);
+                deliverMessage(sock, address, msg);
+              } else {
+                if (debug) {
+                  log.debug("Outbound message for address " + address + " rejected because auth is required and socket is not authed");
+                }
+              }
+            } else {
+              log.error(res.cause());
+            }
+          });
+
+        } else {
+          checkAddAccceptedReplyAddress(msg);
+          deliverMessage(sock, address, msg);
+        }
+      } else {
+        // outbound match failed
+        if (debug) {
+          log.debug("Outbound message for address " + address + " rejected because there is no inbound match");
+        }
+      }
+    };
+    MessageConsumer reg = eb.consumer(address).handler(handler);
+    return reg::unregister;
+  }
+
+  private void internalHandleUnregister(SockJSSocket sock, JsonObject rawMsg, Map<String, Runnable> registrations) {
     checkCallHook(() -> new BridgeEventImpl(BridgeEventType.UNREGISTER, rawMsg, sock),
       () -> {
         String address = rawMsg.getString("address");
@@ -277,9 +308,9 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
         }
         Match match = checkMatches(false, address, null);
         if (match.doesMatch) {
-          MessageConsumer reg = registrations.remove(address);
+          Runnable reg = registrations.remove(address);
           if (reg != null) {
-            reg.unregister();
+            reg.run();
             SockInfo info = sockInfos.get(sock);
             info.handlerCount--;
           }
@@ -305,30 +336,70 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
     }
   }
 
+  /**
+   * @return the number of messages delivered to sockets that are waiting for a reply
+   */
+  public int pendingReplyCount() {
+    return messagesAwaitingReply.pendingCount();
+  }
+
+  /**
+   * @return the number of messages that were not replied to before the reply timeout
+   */
+  public long expiredReplyCount() {
+    return messagesAwaitingReply.expiredCount();
+  }
+
+  /**
+   * @return the number of messages not waited for because max pending replies was reached
+   */
+  public long rejectedReplyCount() {
+    return messagesAwaitingReply.rejectedCount();
+  }
+
   public void handle(final SockJSSocket sock) {
+    handle(sock, BridgeCodec.JSON);
+  }
+
+  /**
+   * Bridge a socket exchanging the envelopes of the given codec.
+   */
+  void handle(final SockJSSocket sock, BridgeCodec codec) {
     checkCallHook(() -> new BridgeEventImpl(BridgeEventType.SOCKET_CREATED, null, sock),
       () -> {
-        Map<String, MessageConsumer> registrations = new HashMap<>();
+        Map<String, Runnable> registrations = new HashMap<>();
 
         sock.endHandler(v -> handleSocketClosed(sock, registrations));
         sock.handler(data -> handleSocketData(sock, data, registrations));
 
         // Start a checker to check for pings
         PingInfo pingInfo = new PingInfo();
-        pingInfo.timerID = vertx.setPeriodic(pingTimeout, id -> {
-          if (System.currentTimeMillis() - pingInfo.lastPing >= pingTimeout) {
-        	// Trigger an event to allow custom behavior before disconnecting client.
-            checkCallHook(() -> new BridgeEventImpl(BridgeEventType.SOCKET_IDLE, null, sock), null, null);
-            // We didn't receive a ping in time so close the socket
-            sock.close();
-          }
-        });
+        schedulePingCheck(sock, pingInfo, pingTimeout);
         SockInfo sockInfo = new SockInfo();
         sockInfo.pingInfo = pingInfo;
+        sockInfo.codec = codec;
+        if (authorisationCacheTimeout > 0) {
+          sockInfo.authorisations = new AuthorisationCache(authorisationCacheTimeout);
+        }
         sockInfos.put(sock, sockInfo);
       }, sock::close);
   }
 
+  private void schedulePingCheck(SockJSSocket sock, PingInfo pingInfo, long delay) {
+    pingInfo.timeout = TimerWheel.schedule(vertx, timerGranularity, delay, v -> {
+      long idle = System.currentTimeMillis() - pingInfo.lastPing;
+      if (idle >= pingTimeout) {
+        // Trigger an event to allow custom behavior before disconnecting client.
+        checkCallHook(() -> new BridgeEventImpl(BridgeEventType.SOCKET_IDLE, null, sock), null, null);
+        // We didn't receive a ping in time so close the socket
+        sock.close();
+      } else {
+        // check again when the last ping becomes too old
+        schedulePingCheck(sock, pingInfo, pingTimeout - idle);
+      }
+    });
+  }
+
   private void checkAddAccceptedReplyAddress(Message message) {
     String replyAddress = message.replyAddress();
     if (replyAddress != null) {
@@ -339,14 +410,87 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
       // We also need to cache the message so we can actually call reply() on it - we need the actual message
       // as the original sender could be on a different node so we need the replyDest (serverID) too otherwise
       // the message won't be routed to the node.
+      // The registry removes it after timeout in case the reply never comes
       messagesAwaitingReply.put(replyAddress, message);
-      // And we remove after timeout in case the reply never comes
-      vertx.setTimer(replyTimeout, tid -> messagesAwaitingReply.remove(replyAddress));
     }
   }
 
+  /*
+  With shared consumers there is a single event bus consumer per address, whatever the number of sockets
+  registered on it. Sockets only join or leave the local subscriber set of the address.
+   */
+  private Runnable subscribe(SockJSSocket sock, String address) {
+    // joining and leaving are atomic, a socket never joins a fan out whose consumer is unregistered
+    fanOuts.compute(address, (addr, fanOut) -> {
+      if (fanOut == null) {
+        fanOut = new FanOut(addr);
+      }
+      fanOut.subscribers.add(sock);
+      return fanOut;
+    });
+    return () -> fanOuts.computeIfPresent(address, (addr, fanOut) -> {
+      if (fanOut.subscribers.remove(sock) && fanOut.subscribers.isEmpty()) {
+        fanOut.consumer.unregister();
+        return null;
+      }
+      return fanOut;
+    });
+  }
+
   private void deliverMessage(SockJSSocket sock, String address, Message message) {
-    JsonObject envelope = new JsonObject().put("type", "rec").put("address", address).put("body", message.body());
+    deliverEnvelope(sock, envelope(address, message), null);
+  }
+
+  /*
+  The encoded envelope can be shared by all the sockets only when there is no bridge event handler, as the handler
+  is allowed to rewrite the raw message of each RECEIVE event.
+   */
+  private void deliverEnvelope(SockJSSocket sock, JsonObject envelope, Map<BridgeCodec, Buffer> encoded) {
+    String address = envelope.getString("address");
+    BridgeCodec codec = codec(sock);
+    if (encoded != null) {
+      Buffer buffer = encode(sock, codec, envelope, encoded);
+      if (buffer != null) {
+        write(sock, address, buffer);
+      }
+      return;
+    }
+    checkCallHook(() -> new BridgeEventImpl(BridgeEventType.RECEIVE, envelope, sock),
+      () -> {
+        Buffer buffer = encode(sock, codec, envelope, null);
+        if (buffer != null) {
+          write(sock, address, buffer);
+        }
+      },
+      () -> log.debug("outbound message rejected by bridge event handler"));
+  }
+
+  /*
+  A codec may not be able to encode an envelope, e.g. a header too long for the binary envelopes. Only the socket
+  using that codec is told, the message is still delivered to the other sockets.
+   */
+  private Buffer encode(SockJSSocket sock, BridgeCodec codec, JsonObject envelope, Map<BridgeCodec, Buffer> encoded) {
+    try {
+      return encoded == null ? codec.encode(envelope) : encoded.computeIfAbsent(codec, c -> c.encode(envelope));
+    } catch (IllegalArgumentException e) {
+      log.warn("Cannot encode outbound message for address " + envelope.getString("address") + ": " + e.getMessage());
+      replyError(sock, "encode_error");
+      return null;
+    }
+  }
+
+  // The address is the conflation key of the slow consumer policy
+  private static void write(SockJSSocket sock, String address, Buffer buffer) {
+    if (sock instanceof SockJSSocketBase) {
+      ((SockJSSocketBase) sock).write(buffer, address);
+    } else {
+      sock.write(buffer);
+    }
+  }
+
+  private static JsonObject envelope(String address, Message message) {
+    JsonObject envelope = new JsonObject().put("type", "rec").put("address", address);
+    putBody(envelope, message.body());
     if (message.replyAddress() != null) {
       envelope.put("replyAddress", message.replyAddress());
     }
@@ -362,9 +506,33 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
       }
       envelope.put("headers", headersCopy);
     }
-    checkCallHook(() -> new BridgeEventImpl(BridgeEventType.RECEIVE, envelope, sock),
-      () -> sock.write(buffer(envelope.encode())),
-      () -> log.debug("outbound message rejected by bridge event handler"));
+    return envelope;
+  }
+
+  // A buffer is not a valid JSON value, the codec decides how to encode it
+  private static void putBody(JsonObject envelope, Object body) {
+    if (body instanceof Buffer) {
+      envelope.getMap().put("body", body);
+    } else {
+      envelope.put("body", body);
+    }
+  }
+
+  static JsonObject copy(JsonObject envelope) {
+    Object body = envelope.getValue("body");
+    if (!(body instanceof Buffer)) {
+      return envelope.copy();
+    }
+    // the envelope may be shared, it can't be modified
+    JsonObject fields = new JsonObject();
+    envelope.getMap().forEach((name, value) -> {
+      if (value != body) {
+        fields.put(name, value);
+      }
+    });
+    JsonObject copy = fields.copy();
+    putBody(copy, ((Buffer) body).copy());
+    return copy;
   }
 
   private void doSendOrPub(boolean send, SockJSSocket sock, String address,
@@ -394,7 +562,7 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
       if (curMatch.requiredAuthority != null) {
         User webUser = sock.webUser();
         if (webUser != null) {
-          authorise(curMatch, webUser, res -> {
+          authorise(curMatch, sock, webUser, res -> {
             if (res.succeeded()) {
               if (res.result()) {
                 checkAndSend(send, address, body, headers, sock, replyAddress, null);
@@ -460,7 +628,7 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
                 .put("failureCode", cause.failureCode())
                 .put("failureType", cause.failureType().name())
                 .put("message", cause.getMessage());
-          sock.write(buffer(envelope.encode()));
+          sock.write(codec(sock).encode(envelope));
         }
         info.handlerCount--;
       };
@@ -473,7 +641,13 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
     MultiMap mHeaders;
     if (headers != null) {
       mHeaders = new CaseInsensitiveHeaders();
-      headers.forEach(entry -> mHeaders.add(entry.getKey(), entry.getValue().toString()));
+      headers.forEach(entry -> {
+        if (entry.getValue() instanceof JsonArray) {
+          ((JsonArray) entry.getValue()).forEach(value -> mHeaders.add(entry.getKey(), String.valueOf(value)));
+        } else {
+          mHeaders.add(entry.getKey(), entry.getValue().toString());
+        }
+      });
     } else {
       mHeaders = null;
     }
@@ -491,17 +665,23 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
     }
   }
 
-  private void authorise(Match curMatch, User webUser,
+  private void authorise(Match curMatch, SockJSSocket sock, User webUser,
                          Handler<AsyncResult<Boolean>> handler) {
 
     if (curMatch.requiredAuthority != null) {
-      webUser.isAuthorised(curMatch.requiredAuthority, res -> {
+      Handler<AsyncResult<Boolean>> resultHandler = res -> {
         if (res.succeeded()) {
           handler.handle(Future.succeededFuture(res.result()));
         } else {
           log.error(res.cause());
         }
-      });
+      };
+      SockInfo info = sockInfos.get(sock);
+      if (info != null && info.authorisations != null) {
+        info.authorisations.authorise(webUser, sock.webSession(), curMatch.requiredAuthority, resultHandler);
+      } else {
+        webUser.isAuthorised(curMatch.requiredAuthority, resultHandler);
+      }
     }
   }
 
@@ -511,69 +691,18 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
   this means that specifying one match with a JSON empty object means everything is accepted
    */
   private Match checkMatches(boolean inbound, String address, Object body) {
-
-    List<PermittedOptions> matches = inbound ? inboundPermitted : outboundPermitted;
-
-    for (PermittedOptions matchHolder : matches) {
-      String matchAddress = matchHolder.getAddress();
-      String matchRegex;
-      if (matchAddress == null) {
-        matchRegex = matchHolder.getAddressRegex();
-      } else {
-        matchRegex = null;
-      }
-
-      boolean addressOK;
-      if (matchAddress == null) {
-        addressOK = matchRegex == null || regexMatches(matchRegex, address);
-      } else {
-        addressOK = matchAddress.equals(address);
-      }
-
-      if (addressOK) {
-        boolean matched = structureMatches(matchHolder.getMatch(), body);
-        if (matched) {
-          String requiredAuthority = matchHolder.getRequiredAuthority();
-          return new Match(true, requiredAuthority);
-        }
-      }
-    }
-    return new Match(false);
+    PermittedOptions permitted = (inbound ? inboundPermitted : outboundPermitted).match(address, body);
+    return permitted == null ? new Match(false) : new Match(true, permitted.getRequiredAuthority());
   }
 
-  private boolean regexMatches(String matchRegex, String address) {
-    Pattern pattern = compiledREs.computeIfAbsent(matchRegex, Pattern::compile);
-    Matcher m = pattern.matcher(address);
-    return m.matches();
-  }
-
-  private static void replyError(SockJSSocket sock, String err) {
+  private void replyError(SockJSSocket sock, String err) {
     JsonObject envelope = new JsonObject().put("type", "err").put("body", err);
-    sock.write(buffer(envelope.encode()));
-  }
-
-  private static boolean structureMatches(JsonObject match, Object bodyObject) {
-    if (match == null || bodyObject == null) return true;
-
-    // Can send message other than JSON too - in which case we can't do deep matching on structure of message
-    if (bodyObject instanceof JsonObject) {
-      JsonObject body = (JsonObject) bodyObject;
-      for (String fieldName : match.fieldNames()) {
-        Object mv = match.getValue(fieldName);
-        Object bv = body.getValue(fieldName);
-        // Support deep matching
-        if (mv instanceof JsonObject) {
-          if (!structureMatches((JsonObject) mv, bv)) {
-            return false;
-          }
-        } else if (!match.getValue(fieldName).equals(body.getValue(fieldName))) {
-          return false;
-        }
-      }
-      return true;
-    }
+    sock.write(codec(sock).encode(envelope));
+  }
 
-    return false;
+  private BridgeCodec codec(SockJSSocket sock) {
+    SockInfo info = sockInfos.get(sock);
+    return info == null ? BridgeCodec.JSON : info.codec;
   }
 
   private static class Match {
@@ -592,14 +721,75 @@ public class EventBusBridgeImpl implements Handler<SockJSSocket> {
 
   }
 
+  private final class FanOut implements Handler<Message<Object>> {
+    final String address;
+    // weakly consistent iteration, sockets may close while a message is being delivered
+    final Set<SockJSSocket> subscribers = ConcurrentHashMap.newKeySet();
+    final MessageConsumer<Object> consumer;
+
+    FanOut(String address) {
+      this.address = address;
+      this.consumer = eb.consumer(address, this);
+    }
+
+    @Override
+    public void handle(Message<Object> msg) {
+      // the outbound permissions only depend on the address and the body, not on the socket
+      Match curMatch = checkMatches(false, address, msg.body());
+      if (!curMatch.doesMatch) {
+        if (log.isDebugEnabled()) {
+          log.debug("Outbound message for address " + address + " rejected because there is no inbound match");
+        }
+        return;
+      }
+      JsonObject envelope = envelope(address, msg);
+      // encoded once per codec
+      Map<BridgeCodec, Buffer> encoded = bridgeEventHandler == null ? new ConcurrentHashMap<>(2) : null;
+      if (curMatch.requiredAuthority == null) {
+        checkAddAccceptedReplyAddress(msg);
+        for (SockJSSocket sock : subscribers) {
+          deliverEnvelope(sock, encoded == null ? copy(envelope) : envelope, encoded);
+        }
+        return;
+      }
+      // the reply is only accepted once a socket was authorised to receive the message
+      AtomicBoolean replyAccepted = new AtomicBoolean();
+      for (SockJSSocket sock : subscribers) {
+        User webUser = sock.webUser();
+        if (webUser == null) {
+          if (log.isDebugEnabled()) {
+            log.debug("Outbound message for address " + address + " rejected because auth is required and socket is not authed");
+          }
+          continue;
+        }
+        authorise(curMatch, sock, webUser, res -> {
+          if (res.succeeded()) {
+            if (res.result()) {
+              if (replyAccepted.compareAndSet(false, true)) {
+                checkAddAccceptedReplyAddress(msg);
+              }
+              deliverEnvelope(sock, encoded == null ? copy(envelope) : envelope, encoded);
+            } else if (log.isDebugEnabled()) {
+              log.debug("Outbound message for address " + address + " rejected because auth is required and socket is not authed");
+            }
+          } else {
+            log.error(res.cause());
+          }
+        });
+      }
+    }
+  }
+
   private static final class PingInfo {
     long lastPing;
-    long timerID;
+    TimerWheel.Timeout timeout;
   }
 
   private static final class SockInfo {
     int handlerCount;
     PingInfo pingInfo;
+    AuthorisationCache authorisations;
+    BridgeCodec codec;
   }
 
 
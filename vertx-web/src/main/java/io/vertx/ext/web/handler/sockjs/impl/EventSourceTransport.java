@@ -54,8 +54,8 @@ class EventSourceTransport extends BaseTransport {
   private static final Logger log = LoggerFactory.getLogger(EventSourceTransport.class);
 
   EventSourceTransport(Vertx vertx, Router router, LocalMap<String, SockJSSession> sessions, SockJSHandlerOptions options,
-                       Handler<SockJSSocket> sockHandler) {
-    super(vertx, sessions, options);
+                       SockJSSession.WriteCounters counters, Handler<SockJSSocket> sockHandler) {
+    super(vertx, sessions, options, counters);
 
     String eventSourceRE = COMMON_PATH_ELEMENT_RE + "eventsource";
 
@@ -81,8 +81,8 @@ class HtmlFileTransport extends BaseTransport {
   }
 
   HtmlFileTransport(Vertx vertx, Router router, LocalMap<String, SockJSSession> sessions, SockJSHandlerOptions options,
-                    Handler<SockJSSocket> sockHandler) {
-    super(vertx, sessions, options);
+                    SockJSSession.WriteCounters counters, Handler<SockJSSocket> sockHandler) {
+    super(vertx, sessions, options, counters);
     String htmlFileRE = COMMON_PATH_ELEMENT_RE + "htmlfile.*";
 
     router.getWithRegex(htmlFileRE).handler(rc -> {
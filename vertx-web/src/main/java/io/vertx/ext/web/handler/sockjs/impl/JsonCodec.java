@@ -44,6 +44,8 @@ import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.EncodeException;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.function.Function;
 
 /**
  *
@@ -57,6 +59,11 @@ import java.io.IOException;
 public class JsonCodec {
 
   private final static ObjectMapper mapper;
+  private final static char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+  private final static int[] ESCAPE_CODES = CharTypes.get7BitOutputEscapes();
+  // frames are assembled in a builder reused by each event loop, unless it grew too large
+  private final static int MAX_RETAINED_FRAME_CAPACITY = 64 * 1024;
+  private final static ThreadLocal<StringBuilder> frameBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
 
   static {
     mapper = new ObjectMapper();
@@ -72,9 +79,6 @@ public class JsonCodec {
     SimpleModule simpleModule = new SimpleModule();
 
     simpleModule.addSerializer(String.class, new JsonSerializer<String>() {
-      final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
-      final int[] ESCAPE_CODES = CharTypes.get7BitOutputEscapes();
-
       private void writeUnicodeEscape(JsonGenerator gen, char c) throws IOException {
         gen.writeRaw('\\');
         gen.writeRaw('u');
@@ -128,6 +132,63 @@ public class JsonCodec {
     }
   }
 
+  /**
+   * Encode messages as a SockJS array frame, escaped as {@link #encode(Object)} escapes strings. The runs of characters
+   * that need no escaping are copied in bulk.
+   *
+   * @param messages the messages
+   * @return the frame
+   */
+  static String encodeArrayFrame(Collection<String> messages) {
+    return encodeArrayFrame(messages, Function.identity());
+  }
+
+  static <T> String encodeArrayFrame(Collection<T> messages, Function<? super T, String> text) {
+    StringBuilder sb = frameBuilder.get();
+    sb.setLength(0);
+    sb.append("a[");
+    boolean first = true;
+    for (T msg : messages) {
+      if (!first) {
+        sb.append(',');
+      }
+      first = false;
+      appendQuoted(sb, text.apply(msg));
+    }
+    sb.append(']');
+    String frame = sb.toString();
+    if (sb.capacity() > MAX_RETAINED_FRAME_CAPACITY) {
+      frameBuilder.remove();
+    }
+    return frame;
+  }
+
+  private static void appendQuoted(StringBuilder sb, String str) {
+    sb.append('"');
+    int len = str.length();
+    int start = 0;
+    for (int i = 0; i < len; i++) {
+      char c = str.charAt(i);
+      // all non US-ASCII characters use generic escaping
+      int code = c >= 0x80 ? -1 : ESCAPE_CODES[c];
+      if (code != 0) {
+        sb.append(str, start, i);
+        if (code == -1) {
+          sb.append("\\u")
+            .append(HEX_CHARS[(c >> 12) & 0xF])
+            .append(HEX_CHARS[(c >> 8) & 0xF])
+            .append(HEX_CHARS[(c >> 4) & 0xF])
+            .append(HEX_CHARS[c & 0xF]);
+        } else {
+          sb.append('\\').append((char) code);
+        }
+        start = i + 1;
+      }
+    }
+    sb.append(str, start, len);
+    sb.append('"');
+  }
+
   public static Object decodeValue(String str, Class<?> clazz) throws DecodeException {
     try {
       return mapper.readValue(str, clazz);
@@ -52,8 +52,8 @@ class JsonPTransport extends BaseTransport {
   private static final Logger log = LoggerFactory.getLogger(JsonPTransport.class);
 
   JsonPTransport(Vertx vertx, Router router, LocalMap<String, SockJSSession> sessions, SockJSHandlerOptions options,
-                 Handler<SockJSSocket> sockHandler) {
-    super(vertx, sessions, options);
+                 SockJSSession.WriteCounters counters, Handler<SockJSSocket> sockHandler) {
+    super(vertx, sessions, options, counters);
 
     String jsonpRE = COMMON_PATH_ELEMENT_RE + "jsonp";
 
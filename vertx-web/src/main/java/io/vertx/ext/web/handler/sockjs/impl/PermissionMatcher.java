@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.bridge.PermittedOptions;
+import io.vertx.ext.web.impl.BoundedConcurrentCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The permitted options of one direction of the bridge compiled into an index. Exact addresses are looked up in a
+ * hash map, the address regexes are merged in a single pattern that rejects the addresses none of them matches, and
+ * the rules an address matches are cached, so the body matches are the only work left for most checks.
+ * <p>
+ * As with the list it is built from, the first rule matching both the address and the body wins.
+ * <p>
+ * This class is thread-safe
+ */
+final class PermissionMatcher {
+
+  static final int DEFAULT_CACHE_SIZE = 4096;
+
+  private static final Rule[] NONE = new Rule[0];
+  private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+  // the rules of each exact address, merged with the rules matching any address
+  private final Map<String, Rule[]> exact = new HashMap<>();
+  // rules matching any address
+  private final Rule[] wildcards;
+  private final Rule[] regexes;
+  // null when there is no regex or they can't be merged
+  private final Pattern merged;
+  private final BoundedConcurrentCache<String, Rule[]> cache;
+
+  PermissionMatcher(List<PermittedOptions> permitted) {
+    this(permitted, DEFAULT_CACHE_SIZE);
+  }
+
+  PermissionMatcher(List<PermittedOptions> permitted, int cacheSize) {
+    Map<String, List<Rule>> byAddress = new HashMap<>();
+    List<Rule> wildcards = new ArrayList<>();
+    List<Rule> regexes = new ArrayList<>();
+    for (int i = 0; i < permitted.size(); i++) {
+      Rule rule = new Rule(i, permitted.get(i));
+      if (rule.options.getAddress() != null) {
+        byAddress.computeIfAbsent(rule.options.getAddress(), k -> new ArrayList<>()).add(rule);
+      } else if (rule.pattern != null) {
+        regexes.add(rule);
+      } else {
+        wildcards.add(rule);
+      }
+    }
+    this.wildcards = wildcards.toArray(NONE);
+    this.regexes = regexes.toArray(NONE);
+    byAddress.forEach((address, rules) -> exact.put(address, merge(rules.toArray(NONE), this.wildcards)));
+    this.merged = merge(this.regexes);
+    this.cache = this.regexes.length == 0 ? null : new BoundedConcurrentCache<>(cacheSize);
+  }
+
+  /**
+   * @return the first permitted options matching the address and the body, or {@code null}
+   */
+  PermittedOptions match(String address, Object body) {
+    for (Rule rule : candidates(address)) {
+      if (structureMatches(rule.options.getMatch(), body)) {
+        return rule.options;
+      }
+    }
+    return null;
+  }
+
+  private Rule[] candidates(String address) {
+    Rule[] rules = exact.getOrDefault(address, wildcards);
+    if (cache == null) {
+      return rules;
+    }
+    Rule[] cached = cache.get(address);
+    if (cached == null) {
+      if (merged == null || merged.matcher(address).matches()) {
+        List<Rule> matching = new ArrayList<>();
+        for (Rule rule : regexes) {
+          if (rule.pattern.matcher(address).matches()) {
+            matching.add(rule);
+          }
+        }
+        rules = merge(rules, matching.toArray(NONE));
+      }
+      cache.put(address, rules);
+      cached = rules;
+    }
+    return cached;
+  }
+
+  private static Rule[] merge(Rule[] a, Rule[] b) {
+    if (b.length == 0) {
+      return a;
+    }
+    if (a.length == 0) {
+      return b;
+    }
+    Rule[] rules = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, rules, a.length, b.length);
+    Arrays.sort(rules, Comparator.comparingInt(rule -> rule.index));
+    return rules;
+  }
+
+  private static Pattern merge(Rule[] regexes) {
+    if (regexes.length < 2) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Rule rule : regexes) {
+      String regex = rule.options.getAddressRegex();
+      // group numbers are shifted by the merge
+      if (BACK_REFERENCE.matcher(regex).find()) {
+        return null;
+      }
+      if (sb.length() > 0) {
+        sb.append('|');
+      }
+      sb.append("(?:").append(regex).append(')');
+    }
+    try {
+      return Pattern.compile(sb.toString());
+    } catch (PatternSyntaxException e) {
+      // e.g. the same named group in several regexes
+      return null;
+    }
+  }
+
+  private static boolean structureMatches(JsonObject match, Object bodyObject) {
+    if (match == null || bodyObject == null) return true;
+
+    // Can send message other than JSON too - in which case we can't do deep matching on structure of message
+    if (bodyObject instanceof JsonObject) {
+      JsonObject body = (JsonObject) bodyObject;
+      for (String fieldName : match.fieldNames()) {
+        Object mv = match.getValue(fieldName);
+        Object bv = body.getValue(fieldName);
+        // Support deep matching
+        if (mv instanceof JsonObject) {
+          if (!structureMatches((JsonObject) mv, bv)) {
+            return false;
+          }
+        } else if (!match.getValue(fieldName).equals(body.getValue(fieldName))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    return false;
+  }
+
+  private static final class Rule {
+    final int index;
+    final PermittedOptions options;
+    final Pattern pattern;
+
+    Rule(int index, PermittedOptions options) {
+      this.index = index;
+      this.options = options;
+      this.pattern = options.getAddress() == null && options.getAddressRegex() != null ?
+        Pattern.compile(options.getAddressRegex()) : null;
+    }
+  }
+}
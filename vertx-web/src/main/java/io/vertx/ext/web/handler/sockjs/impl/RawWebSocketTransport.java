@@ -32,6 +32,7 @@
 
 package io.vertx.ext.web.handler.sockjs.impl;
 
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
@@ -42,9 +43,13 @@ import io.vertx.core.logging.LoggerFactory;
 import io.vertx.core.net.SocketAddress;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.sockjs.SlowConsumerPolicy;
+import io.vertx.ext.web.handler.sockjs.SockJSHandlerOptions;
 import io.vertx.ext.web.handler.sockjs.SockJSSocket;
 import io.vertx.ext.auth.User;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
  */
@@ -56,11 +61,19 @@ class RawWebSocketTransport {
 
     ServerWebSocket ws;
     MultiMap headers;
+    final SlowConsumerPolicy slowConsumerPolicy;
+    final LongAdder droppedWrites = new LongAdder();
+    volatile boolean closed;
 
-    RawWSSockJSSocket(Vertx vertx, Session webSession, User webUser, ServerWebSocket ws) {
+    RawWSSockJSSocket(Vertx vertx, Session webSession, User webUser, ServerWebSocket ws, SockJSHandlerOptions options) {
       super(vertx, webSession, webUser);
       this.ws = ws;
+      this.slowConsumerPolicy = options.getSlowConsumerPolicy();
+      if (slowConsumerPolicy != null) {
+        ws.setWriteQueueMaxSize(options.getWriteQueueMaxSize());
+      }
       ws.closeHandler(v -> {
+        closed = true;
         // Make sure the writeHandler gets unregistered
         RawWSSockJSSocket.super.close();
       });
@@ -83,10 +96,24 @@ class RawWebSocketTransport {
     }
 
     public SockJSSocket write(Buffer data) {
+      if (slowConsumerPolicy != null && ws.writeQueueFull()) {
+        // the queued frames belong to the websocket, whatever the policy only the new message can be dropped
+        droppedWrites.increment();
+        if (slowConsumerPolicy == SlowConsumerPolicy.CLOSE) {
+          log.warn("Closing raw websocket as its write queue is full");
+          close();
+        }
+        return this;
+      }
       ws.writeBinaryMessage(data);
       return this;
     }
 
+    @Override
+    public long droppedWriteCount() {
+      return droppedWrites.sum();
+    }
+
     public SockJSSocket setWriteQueueMaxSize(int maxQueueSize) {
       ws.setWriteQueueMaxSize(maxQueueSize);
       return this;
@@ -112,6 +139,7 @@ class RawWebSocketTransport {
     }
 
     public void close() {
+      closed = true;
       super.close();
       ws.close();
     }
@@ -140,20 +168,88 @@ class RawWebSocketTransport {
     }
   }
 
-  RawWebSocketTransport(Vertx vertx, Router router,
+  /*
+  The binary envelopes are length prefixed, so the envelopes written during the same tick are sent in a single
+  websocket message, up to MAX_BATCH_SIZE bytes.
+   */
+  private static class BinaryBridgeSocket extends RawWSSockJSSocket {
+
+    static final int MAX_BATCH_SIZE = 64 * 1024;
+
+    final Context context;
+    Buffer batch;
+    // false while the batch is the first buffer written, which may be shared with other sockets
+    boolean owned;
+
+    BinaryBridgeSocket(Vertx vertx, Session webSession, User webUser, ServerWebSocket ws, SockJSHandlerOptions options) {
+      super(vertx, webSession, webUser, ws, options);
+      this.context = vertx.getOrCreateContext();
+    }
+
+    @Override
+    public synchronized SockJSSocket write(Buffer data) {
+      if (closed) {
+        // the websocket would throw
+        return this;
+      }
+      if (batch != null && batch.length() + data.length() > MAX_BATCH_SIZE) {
+        flush();
+      }
+      if (batch == null) {
+        batch = data;
+        owned = false;
+        context.runOnContext(v -> flush());
+      } else {
+        if (!owned) {
+          batch = Buffer.buffer(batch.length() + data.length()).appendBuffer(batch);
+          owned = true;
+        }
+        batch.appendBuffer(data);
+      }
+      return this;
+    }
+
+    synchronized void flush() {
+      if (batch != null) {
+        Buffer data = batch;
+        batch = null;
+        // the batch is dropped when the websocket was closed meanwhile
+        if (!closed) {
+          super.write(data);
+        }
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      flush();
+      super.close();
+    }
+  }
+
+  RawWebSocketTransport(Vertx vertx, Router router, SockJSHandlerOptions options,
                         Handler<SockJSSocket> sockHandler) {
 
     String wsRE = "/websocket";
 
     router.get(wsRE).handler(rc -> {
       ServerWebSocket ws = rc.request().upgrade();
-      SockJSSocket sock = new RawWSSockJSSocket(vertx, rc.session(), rc.user(), ws);
+      SockJSSocket sock = new RawWSSockJSSocket(vertx, rc.session(), rc.user(), ws, options);
       sockHandler.handle(sock);
     });
 
     router.get(wsRE).handler(rc -> rc.response().setStatusCode(400).end("Can \"Upgrade\" only to \"WebSocket\"."));
 
     router.get(wsRE).handler(rc -> rc.response().putHeader("Allow", "GET").setStatusCode(405).end());
+
+    if (sockHandler instanceof EventBusBridgeImpl) {
+      // the bridge also exchanges binary envelopes, see BinaryBridgeCodec
+      EventBusBridgeImpl bridge = (EventBusBridgeImpl) sockHandler;
+      router.get(wsRE + "/binary").handler(rc -> {
+        ServerWebSocket ws = rc.request().upgrade();
+        bridge.handle(new BinaryBridgeSocket(vertx, rc.session(), rc.user(), ws, options), BinaryBridgeCodec.INSTANCE);
+      });
+    }
   }
 
 }
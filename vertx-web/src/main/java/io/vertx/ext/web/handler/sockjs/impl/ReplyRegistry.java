@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The messages delivered to bridged sockets that are waiting for a reply, by reply address. An entry expires after the
+ * reply timeout, the expirations are driven by the {@link TimerWheel} of the context registering the message rather
+ * than by a timer per message.
+ * <p>
+ * The number of pending replies is bounded, a message registered when the bound is reached is not waited for and
+ * its reply has to be permitted like any other inbound message.
+ * <p>
+ * This class is thread-safe
+ */
+final class ReplyRegistry {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplyRegistry.class);
+
+  private final Vertx vertx;
+  private final long timeout;
+  private final long granularity;
+  private final int maxSize;
+  private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+  private final LongAdder expired = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  ReplyRegistry(Vertx vertx, long timeout, long granularity, int maxSize) {
+    this.vertx = vertx;
+    this.timeout = timeout;
+    this.granularity = granularity;
+    this.maxSize = maxSize;
+  }
+
+  void put(String replyAddress, Message message) {
+    if (pending.size() >= maxSize) {
+      rejected.increment();
+      if (log.isDebugEnabled()) {
+        log.debug("Not waiting for a reply to " + replyAddress + " as max_pending_replies is reached");
+      }
+      return;
+    }
+    Pending entry = new Pending(message);
+    // the same message can be delivered to several sockets, the first registration is kept
+    if (pending.putIfAbsent(replyAddress, entry) == null) {
+      entry.timeout = TimerWheel.schedule(vertx, granularity, timeout, v -> {
+        if (pending.remove(replyAddress, entry)) {
+          expired.increment();
+        }
+      });
+    }
+  }
+
+  Message remove(String replyAddress) {
+    Pending entry = pending.remove(replyAddress);
+    if (entry == null) {
+      return null;
+    }
+    TimerWheel.Timeout t = entry.timeout;
+    if (t != null) {
+      t.cancel();
+    }
+    return entry.message;
+  }
+
+  int pendingCount() {
+    return pending.size();
+  }
+
+  long expiredCount() {
+    return expired.sum();
+  }
+
+  long rejectedCount() {
+    return rejected.sum();
+  }
+
+  private static final class Pending {
+    final Message message;
+    volatile TimerWheel.Timeout timeout;
+
+    Pending(Message message) {
+      this.message = message;
+    }
+  }
+}
@@ -72,6 +72,7 @@ public class SockJSHandlerImpl implements SockJSHandler, Handler<RoutingContext>
   private Router router;
   private LocalMap<String, SockJSSession> sessions;
   private SockJSHandlerOptions options;
+  private final SockJSSession.WriteCounters writeCounters = new SockJSSession.WriteCounters();
 
   public SockJSHandlerImpl(Vertx vertx, SockJSHandlerOptions options) {
     this.vertx = vertx;
@@ -81,6 +82,21 @@ public class SockJSHandlerImpl implements SockJSHandler, Handler<RoutingContext>
     this.options = options;
   }
 
+  /**
+   * @return the number of data frames written by the SockJS sessions of this handler, each frame carries one or more
+   * messages
+   */
+  public long frameCount() {
+    return writeCounters.frames.sum();
+  }
+
+  /**
+   * @return the number of messages written by the SockJS sessions of this handler
+   */
+  public long messageCount() {
+    return writeCounters.messages.sum();
+  }
+
   @Override
   public void handle(RoutingContext context) {
     if (log.isTraceEnabled()) {
@@ -96,7 +112,7 @@ public class SockJSHandlerImpl implements SockJSHandler, Handler<RoutingContext>
 
   @Override
   public SockJSHandler bridge(BridgeOptions bridgeOptions, Handler<BridgeEvent> bridgeEventHandler) {
-    socketHandler(new EventBusBridgeImpl(vertx, bridgeOptions, bridgeEventHandler));
+    socketHandler(new EventBusBridgeImpl(vertx, bridgeOptions, bridgeEventHandler, options.getTimerGranularity()));
     return this;
   }
 
@@ -141,20 +157,20 @@ public class SockJSHandlerImpl implements SockJSHandler, Handler<RoutingContext>
     enabledTransports.removeAll(disabledTransports);
 
     if (enabledTransports.contains(Transport.XHR.toString())) {
-      new XhrTransport(vertx, router, sessions, options, sockHandler);
+      new XhrTransport(vertx, router, sessions, options, writeCounters, sockHandler);
     }
     if (enabledTransports.contains(Transport.EVENT_SOURCE.toString())) {
-      new EventSourceTransport(vertx, router, sessions, options, sockHandler);
+      new EventSourceTransport(vertx, router, sessions, options, writeCounters, sockHandler);
     }
     if (enabledTransports.contains(Transport.HTML_FILE.toString())) {
-      new HtmlFileTransport(vertx, router, sessions, options, sockHandler);
+      new HtmlFileTransport(vertx, router, sessions, options, writeCounters, sockHandler);
     }
     if (enabledTransports.contains(Transport.JSON_P.toString())) {
-      new JsonPTransport(vertx, router, sessions, options, sockHandler);
+      new JsonPTransport(vertx, router, sessions, options, writeCounters, sockHandler);
     }
     if (enabledTransports.contains(Transport.WEBSOCKET.toString())) {
-      new WebSocketTransport(vertx, router, sessions, options, sockHandler);
-      new RawWebSocketTransport(vertx, router, sockHandler);
+      new WebSocketTransport(vertx, router, sessions, options, writeCounters, sockHandler);
+      new RawWebSocketTransport(vertx, router, options, sockHandler);
     }
 
     return this;
@@ -45,10 +45,17 @@ import io.vertx.core.net.SocketAddress;
 import io.vertx.core.shareddata.LocalMap;
 import io.vertx.core.shareddata.Shareable;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.sockjs.SockJSHandlerOptions;
+import io.vertx.ext.web.handler.sockjs.SlowConsumerPolicy;
 import io.vertx.ext.web.handler.sockjs.SockJSSocket;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
 
 import static io.vertx.core.buffer.Buffer.buffer;
 
@@ -65,7 +72,10 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
 
   private static final Logger log = LoggerFactory.getLogger(SockJSSession.class);
   private final LocalMap<String, SockJSSession> sessions;
-  private final Queue<String> pendingWrites = new LinkedList<>();
+  private final WriteCounters counters;
+  private final Queue<PendingWrite> pendingWrites = new ArrayDeque<>();
+  // the queued message of each conflation key
+  private final Map<String, PendingWrite> conflated = new HashMap<>();
   private final Queue<String> pendingReads = new LinkedList<>();
   private TransportListener listener;
   private Handler<Buffer> dataHandler;
@@ -74,11 +84,18 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
   private final String id;
   private final long timeout;
   private final Handler<SockJSSocket> sockHandler;
-  private long heartbeatID = -1;
-  private long timeoutTimerID = -1;
+  private final long heartbeatInterval;
+  private final long timerGranularity;
+  private final long writeFlushDelay;
+  private boolean flushScheduled;
+  private volatile TimerWheel.Timeout heartbeat;
+  private boolean heartbeatCancelled;
+  private volatile TimerWheel.Timeout timeoutTimer;
   private boolean paused;
-  private int maxQueueSize = 64 * 1024; // Message queue size is measured in *characters* (not bytes)
+  private int maxQueueSize; // Message queue size is measured in bytes
   private int messagesSize;
+  private final SlowConsumerPolicy slowConsumerPolicy;
+  private long droppedWrites;
   private Handler<Void> drainHandler;
   private Handler<Void> endHandler;
   private Handler<Throwable> exceptionHandler;
@@ -90,47 +107,160 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
   private Context transportCtx;
 
   SockJSSession(Vertx vertx, LocalMap<String, SockJSSession> sessions, RoutingContext rc, long heartbeatInterval,
-                Handler<SockJSSocket> sockHandler) {
-    this(vertx, sessions, rc, null, -1, heartbeatInterval, sockHandler);
+                SockJSHandlerOptions options, WriteCounters counters, Handler<SockJSSocket> sockHandler) {
+    this(vertx, sessions, rc, null, -1, heartbeatInterval, options, counters, sockHandler);
   }
 
   SockJSSession(Vertx vertx, LocalMap<String, SockJSSession> sessions, RoutingContext rc, String id, long timeout, long heartbeatInterval,
-                Handler<SockJSSocket> sockHandler) {
+                SockJSHandlerOptions options, WriteCounters counters, Handler<SockJSSocket> sockHandler) {
     super(vertx, rc.session(), rc.user());
     this.sessions = sessions;
+    this.counters = counters;
     this.id = id;
     this.timeout = timeout;
     this.sockHandler = sockHandler;
+    this.heartbeatInterval = heartbeatInterval;
+    this.timerGranularity = options.getTimerGranularity();
+    this.writeFlushDelay = options.getWriteFlushDelay();
+    this.maxQueueSize = options.getWriteQueueMaxSize();
+    this.slowConsumerPolicy = options.getSlowConsumerPolicy();
 
     // Start a heartbeat
+    scheduleHeartbeat();
+  }
 
-    heartbeatID = vertx.setPeriodic(heartbeatInterval, tid -> {
+  private void scheduleHeartbeat() {
+    heartbeat = TimerWheel.schedule(vertx, timerGranularity, heartbeatInterval, v -> {
+      TransportListener listener = this.listener;
       if (listener != null) {
         listener.sendFrame("h");
       }
+      // the session may be shut down on another thread meanwhile
+      synchronized (this) {
+        if (!heartbeatCancelled) {
+          scheduleHeartbeat();
+        }
+      }
     });
   }
 
+  private synchronized void cancelHeartbeat() {
+    heartbeatCancelled = true;
+    TimerWheel.Timeout heartbeat = this.heartbeat;
+    if (heartbeat != null) {
+      this.heartbeat = null;
+      heartbeat.cancel();
+    }
+  }
+
   @Override
   public SockJSSocket write(Buffer buffer) {
+    return write(buffer, null);
+  }
+
+  @Override
+  SockJSSocket write(Buffer buffer, String conflationKey) {
     synchronized (this) {
-      String msgStr = buffer.toString();
-      pendingWrites.add(msgStr);
-      this.messagesSize += msgStr.length();
-      if (listener != null) {
-        Context ctx = transportCtx;
-        if (Vertx.currentContext() != ctx) {
-          ctx.runOnContext(v -> {
-            writePendingMessages();
-          });
-        } else {
-          writePendingMessages();
+      int size = buffer.length();
+      if (slowConsumerPolicy != null && !pendingWrites.isEmpty() && messagesSize + size > maxQueueSize) {
+        if (!makeRoom(buffer, size, conflationKey)) {
+          return this;
         }
       }
+      PendingWrite write = new PendingWrite(buffer.toString(), size, conflationKey);
+      pendingWrites.add(write);
+      if (conflationKey != null && slowConsumerPolicy == SlowConsumerPolicy.CONFLATE) {
+        conflated.put(conflationKey, write);
+      }
+      this.messagesSize += size;
+      scheduleFlush();
     }
     return this;
   }
 
+  // Applies the slow consumer policy, returns whether the message still has to be queued
+  private boolean makeRoom(Buffer buffer, int size, String conflationKey) {
+    switch (slowConsumerPolicy) {
+      case DROP_NEWEST:
+        droppedWrites++;
+        return false;
+      case CONFLATE:
+        PendingWrite previous = conflationKey == null ? null : conflated.get(conflationKey);
+        if (previous != null) {
+          messagesSize += size - previous.size;
+          previous.message = buffer.toString();
+          previous.size = size;
+          droppedWrites++;
+          // a larger message can still overflow the queue
+          dropOldest(0, previous);
+          return false;
+        }
+        dropOldest(size, null);
+        return true;
+      case DROP_OLDEST:
+        dropOldest(size, null);
+        return true;
+      default:
+        log.warn("Closing SockJS session " + id + " as its write queue is full");
+        droppedWrites += pendingWrites.size() + 1;
+        pendingWrites.clear();
+        conflated.clear();
+        messagesSize = 0;
+        close();
+        return false;
+    }
+  }
+
+  private void dropOldest(int size, PendingWrite kept) {
+    Iterator<PendingWrite> it = pendingWrites.iterator();
+    while (it.hasNext() && messagesSize + size > maxQueueSize) {
+      PendingWrite oldest = it.next();
+      if (oldest == kept) {
+        continue;
+      }
+      it.remove();
+      messagesSize -= oldest.size;
+      if (oldest.conflationKey != null) {
+        conflated.remove(oldest.conflationKey, oldest);
+      }
+      droppedWrites++;
+    }
+  }
+
+  @Override
+  public synchronized int pendingWriteCount() {
+    return pendingWrites.size();
+  }
+
+  @Override
+  public synchronized int pendingWriteBytes() {
+    return messagesSize;
+  }
+
+  @Override
+  public synchronized long droppedWriteCount() {
+    return droppedWrites;
+  }
+
+  // The writes of an event loop tick, or of the flush delay, are sent in a single frame
+  private void scheduleFlush() {
+    if (listener != null && !flushScheduled) {
+      flushScheduled = true;
+      if (writeFlushDelay > 0) {
+        transportCtx.runOnContext(v -> TimerWheel.schedule(vertx, timerGranularity, writeFlushDelay, t -> flush()));
+      } else {
+        transportCtx.runOnContext(v -> flush());
+      }
+    }
+  }
+
+  private synchronized void flush() {
+    flushScheduled = false;
+    if (listener != null && !pendingWrites.isEmpty()) {
+      writePendingMessages();
+    }
+  }
+
   @Override
   public synchronized SockJSSession handler(Handler<Buffer> handler) {
     this.dataHandler = handler;
@@ -205,8 +335,12 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
       ctx.runOnContext(v -> {
         doClose();
       });
-    } else {
-      if (listener != null && handleCalled) {
+    } else if (handleCalled) {
+      // The pending writes go before the close frame
+      if (listener != null && !pendingWrites.isEmpty()) {
+        writePendingMessages();
+      }
+      if (listener != null) {
         listener.sessionClosed();
       }
     }
@@ -244,16 +378,18 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
   }
 
   private void cancelTimer() {
-    if (timeoutTimerID != -1) {
-      vertx.cancelTimer(timeoutTimerID);
+    TimerWheel.Timeout timeoutTimer = this.timeoutTimer;
+    if (timeoutTimer != null) {
+      this.timeoutTimer = null;
+      timeoutTimer.cancel();
     }
   }
 
   private void setTimer() {
     if (timeout != -1) {
       cancelTimer();
-      timeoutTimerID = vertx.setTimer(timeout, id1 -> {
-        vertx.cancelTimer(heartbeatID);
+      timeoutTimer = TimerWheel.schedule(vertx, timerGranularity, timeout, v -> {
+        cancelHeartbeat();
         if (listener == null) {
           shutdown();
         }
@@ -265,9 +401,12 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
   }
 
   private synchronized void writePendingMessages() {
-    String json = JsonCodec.encode(pendingWrites.toArray());
-    listener.sendFrame("a" + json);
+    String frame = JsonCodec.encodeArrayFrame(pendingWrites, write -> write.message);
+    counters.frames.increment();
+    counters.messages.add(pendingWrites.size());
+    listener.sendFrame(frame);
     pendingWrites.clear();
+    conflated.clear();
     messagesSize = 0;
     if (drainHandler != null && messagesSize <= maxQueueSize / 2) {
       Handler<Void> dh = drainHandler;
@@ -322,12 +461,8 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
   // Yes, I know it's weird but that's the way SockJS likes it.
   void shutdown() {
     super.close(); // We must call this or handlers don't get unregistered and we get a leak
-    if (heartbeatID != -1) {
-      vertx.cancelTimer(heartbeatID);
-    }
-    if (timeoutTimerID != -1) {
-      vertx.cancelTimer(timeoutTimerID);
-    }
+    cancelHeartbeat();
+    cancelTimer();
     if (id != null) {
       // Can be null if websocket session
       sessions.remove(id);
@@ -404,4 +539,24 @@ class SockJSSession extends SockJSSocketBase implements Shareable {
     lst.sendFrame("o");
     openWritten = true;
   }
+
+  private static final class PendingWrite {
+    String message;
+    int size;
+    final String conflationKey;
+
+    PendingWrite(String message, int size, String conflationKey) {
+      this.message = message;
+      this.size = size;
+      this.conflationKey = conflationKey;
+    }
+  }
+
+  /**
+   * The number of frames and messages written by the sessions of a handler.
+   */
+  static final class WriteCounters {
+    final LongAdder frames = new LongAdder();
+    final LongAdder messages = new LongAdder();
+  }
 }
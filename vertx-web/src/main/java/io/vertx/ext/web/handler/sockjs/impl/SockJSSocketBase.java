@@ -72,6 +72,35 @@ public abstract class SockJSSocketBase implements SockJSSocket {
     this.registration = vertx.eventBus().<Buffer>consumer(writeHandlerID).handler(writeHandler);
   }
 
+  /**
+   * Write a message that can be conflated with the other messages of the same key by the
+   * {@link io.vertx.ext.web.handler.sockjs.SlowConsumerPolicy#CONFLATE} policy.
+   */
+  SockJSSocket write(Buffer data, String conflationKey) {
+    return write(data);
+  }
+
+  /**
+   * @return the number of messages waiting to be sent to the client
+   */
+  public int pendingWriteCount() {
+    return 0;
+  }
+
+  /**
+   * @return the number of bytes waiting to be sent to the client
+   */
+  public int pendingWriteBytes() {
+    return 0;
+  }
+
+  /**
+   * @return the number of messages dropped or conflated by the slow consumer policy
+   */
+  public long droppedWriteCount() {
+    return 0;
+  }
+
   @Override
   public String writeHandlerID() {
     return writeHandlerID;
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed timing wheel driving the timers of all the SockJS sessions and bridged sockets of a context, so a single
+ * periodic timer ticks them in batches instead of each one having its own timers. Timeouts fire on the tick following
+ * their deadline, i.e. up to one granularity late.
+ * <p>
+ * The wheel is confined to its event loop context: timeouts are always scheduled on the wheel of the current context,
+ * they can be cancelled from any thread. Off an event loop, e.g. on a worker context, each timeout gets its own timer.
+ */
+final class TimerWheel {
+
+  private static final String KEY = "__vertx.web.sockjs.timerWheel.";
+  private static final int WHEEL_SIZE = 512;
+  private static final int MASK = WHEEL_SIZE - 1;
+
+  private final Vertx vertx;
+  private final Context context;
+  private final long granularity;
+  // each bucket is a doubly linked list with a sentinel
+  private final Timeout[] buckets = new Timeout[WHEEL_SIZE];
+  private final long start = System.nanoTime();
+  private long tick;
+  private int size;
+  private long timerID = -1;
+
+  private TimerWheel(Vertx vertx, Context context, long granularity) {
+    this.vertx = vertx;
+    this.context = context;
+    this.granularity = granularity;
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      Timeout sentinel = new Timeout(vertx, this, null);
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      buckets[i] = sentinel;
+    }
+  }
+
+  /**
+   * @return the wheel of the current context with the given granularity
+   * @throws IllegalStateException when not called on an event loop context
+   */
+  static TimerWheel current(Vertx vertx, long granularity) {
+    final Context context = Vertx.currentContext();
+    if (context == null || !context.isEventLoopContext()) {
+      throw new IllegalStateException("A timer wheel requires an event loop context");
+    }
+    final String key = KEY + granularity;
+    TimerWheel wheel = context.get(key);
+    if (wheel == null) {
+      wheel = new TimerWheel(vertx, context, granularity);
+      context.put(key, wheel);
+    }
+    return wheel;
+  }
+
+  /**
+   * Schedule a task on the wheel of the current context, or on a timer of its own off an event loop.
+   *
+   * @param vertx the Vert.x instance
+   * @param granularity the granularity of the wheel, in ms
+   * @param delay the delay, in ms
+   * @param task the task, called on the current context
+   * @return the timeout, to cancel it
+   */
+  static Timeout schedule(Vertx vertx, long granularity, long delay, Handler<Void> task) {
+    final Context context = Vertx.currentContext();
+    if (context == null || !context.isEventLoopContext()) {
+      // the wheel is not thread safe and a new context is created on each call from a non Vert.x thread
+      final Timeout timeout = new Timeout(vertx, null, task);
+      timeout.timerID = vertx.setTimer(Math.max(1, delay), id -> {
+        if (!timeout.cancelled) {
+          task.handle(null);
+        }
+      });
+      return timeout;
+    }
+    return current(vertx, granularity).schedule(delay, task);
+  }
+
+  Timeout schedule(long delay, Handler<Void> task) {
+    if (timerID == -1) {
+      // the wheel was stopped, catch up with the clock
+      resync();
+      timerID = vertx.setPeriodic(granularity, id -> advance());
+    }
+    final Timeout timeout = new Timeout(vertx, this, task);
+    // the task runs on the first tick after the deadline
+    final long elapsed = (System.nanoTime() - start) / 1_000_000;
+    timeout.deadline = Math.max(tick + 1, (elapsed + delay + granularity - 1) / granularity);
+    link(timeout);
+    size++;
+    return timeout;
+  }
+
+  private void link(Timeout timeout) {
+    final Timeout sentinel = buckets[(int) (timeout.deadline & MASK)];
+    timeout.prev = sentinel.prev;
+    timeout.next = sentinel;
+    sentinel.prev.next = timeout;
+    sentinel.prev = timeout;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.next != null) {
+      timeout.prev.next = timeout.next;
+      timeout.next.prev = timeout.prev;
+      timeout.prev = null;
+      timeout.next = null;
+      size--;
+    }
+  }
+
+  // the periodic timer might be late, the wheel follows the clock
+  private void resync() {
+    tick = Math.max(tick, (System.nanoTime() - start) / 1_000_000 / granularity);
+  }
+
+  private void advance() {
+    final long now = (System.nanoTime() - start) / 1_000_000 / granularity;
+    while (tick < now) {
+      tick++;
+      expire(buckets[(int) (tick & MASK)]);
+    }
+    if (size == 0) {
+      vertx.cancelTimer(timerID);
+      timerID = -1;
+    }
+  }
+
+  private void expire(Timeout sentinel) {
+    // the tasks can schedule and cancel timeouts so they run once the bucket was swept
+    List<Timeout> expired = null;
+    Timeout timeout = sentinel.next;
+    while (timeout != sentinel) {
+      final Timeout next = timeout.next;
+      if (timeout.cancelled) {
+        unlink(timeout);
+      } else if (timeout.deadline <= tick) {
+        unlink(timeout);
+        if (expired == null) {
+          expired = new ArrayList<>();
+        }
+        expired.add(timeout);
+      }
+      timeout = next;
+    }
+    if (expired != null) {
+      for (Timeout t : expired) {
+        if (!t.cancelled) {
+          t.task.handle(null);
+        }
+      }
+    }
+  }
+
+  /**
+   * A scheduled task.
+   */
+  static final class Timeout {
+    private final Vertx vertx;
+    // null when the timeout has a timer of its own
+    private final TimerWheel wheel;
+    private final Handler<Void> task;
+    private volatile boolean cancelled;
+    private volatile long timerID = -1;
+    // guarded by the context of the wheel
+    private long deadline;
+    private Timeout prev;
+    private Timeout next;
+
+    private Timeout(Vertx vertx, TimerWheel wheel, Handler<Void> task) {
+      this.vertx = vertx;
+      this.wheel = wheel;
+      this.task = task;
+    }
+
+    /**
+     * Cancel the task, it is removed from the wheel right away when called on the context of the wheel.
+     */
+    void cancel() {
+      cancelled = true;
+      if (wheel == null) {
+        vertx.cancelTimer(timerID);
+      } else if (Vertx.currentContext() == wheel.context) {
+        wheel.unlink(this);
+      }
+    }
+  }
+}
@@ -53,8 +53,9 @@ class WebSocketTransport extends BaseTransport {
   WebSocketTransport(Vertx vertx,
                      Router router, LocalMap<String, SockJSSession> sessions,
                      SockJSHandlerOptions options,
+                     SockJSSession.WriteCounters counters,
                      Handler<SockJSSocket> sockHandler) {
-    super(vertx, sessions, options);
+    super(vertx, sessions, options, counters);
     String wsRE = COMMON_PATH_ELEMENT_RE + "websocket";
 
     router.getWithRegex(wsRE).handler(rc -> {
@@ -66,7 +67,8 @@ class WebSocketTransport extends BaseTransport {
       } else {
         ServerWebSocket ws = rc.request().upgrade();
         if (log.isTraceEnabled()) log.trace("WS, handler");
-        SockJSSession session = new SockJSSession(vertx, sessions, rc, options.getHeartbeatInterval(), sockHandler);
+        SockJSSession session = new SockJSSession(vertx, sessions, rc, options.getHeartbeatInterval(),
+          options, counters, sockHandler);
         session.register(req, new WebSocketListener(ws, session));
       }
     });
@@ -67,9 +67,9 @@ class XhrTransport extends BaseTransport {
   }
 
   XhrTransport(Vertx vertx, Router router, LocalMap<String, SockJSSession> sessions, SockJSHandlerOptions options,
-               Handler<SockJSSocket> sockHandler) {
+               SockJSSession.WriteCounters counters, Handler<SockJSSocket> sockHandler) {
 
-    super(vertx, sessions, options);
+    super(vertx, sessions, options, counters);
 
     String xhrBase = COMMON_PATH_ELEMENT_RE;
     String xhrRE = xhrBase + "xhr";
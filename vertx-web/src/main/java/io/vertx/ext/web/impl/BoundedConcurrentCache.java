@@ -0,0 +1,568 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.impl;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A bounded concurrent cache using the W-TinyLFU policy.
+ * <p>
+ * Reads are lock free: the entry is looked up in a {@link ConcurrentHashMap} and the access is recorded in a striped,
+ * lossy buffer. Writes and the buffered reads are applied under a single lock to a small LRU admission window and a
+ * segmented LRU main space (probation and protected). When the window overflows its oldest entry is only admitted
+ * to the main space if it has been used more often than the entry that would be evicted for it, the usage is
+ * estimated by a count-min sketch which is aged periodically. This keeps frequently used entries resident even when
+ * a burst of entries that are used only once goes through the cache.
+ * <p>
+ * Entries can be weighted, in which case the bound is the total weight, and can optionally expire after a period
+ * without access.
+ * <p>
+ * This class is thread-safe
+ */
+public class BoundedConcurrentCache<K, V> {
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int DEAD = 3;
+
+  private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+  private final ToIntBiFunction<? super K, ? super V> weigher;
+  private final long expireAfterAccessNanos;
+  private final ReadBuffer<K, V> readBuffer = new ReadBuffer<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  // all the following state is guarded by the eviction lock
+  private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+  private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+  private final AccessOrderDeque<K, V> protectedSpace = new AccessOrderDeque<>();
+  private FrequencySketch sketch;
+  private long maxWeight;
+  private long windowMaxWeight;
+  private long protectedMaxWeight;
+  private long windowWeight;
+  private long protectedWeight;
+  private long totalWeight;
+
+  public BoundedConcurrentCache(long maxSize) {
+    this(maxSize, null, 0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param maxWeight the maximum total weight of the entries
+   * @param weigher computes the weight of an entry, {@code null} for a weight of 1 per entry
+   * @param expireAfterAccess the time after which an entry that was not read or written is removed, {@code 0} to
+   *                          never expire entries
+   * @param unit the unit of {@code expireAfterAccess}
+   */
+  public BoundedConcurrentCache(long maxWeight, ToIntBiFunction<? super K, ? super V> weigher, long expireAfterAccess,
+                                TimeUnit unit) {
+    if (expireAfterAccess < 0) {
+      throw new IllegalArgumentException("expireAfterAccess must be >= 0");
+    }
+    this.weigher = weigher;
+    this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+    setMaxSize(maxWeight);
+  }
+
+  /**
+   * Change the maximum total weight (the maximum number of entries if there is no weigher), evicting entries if
+   * needed.
+   */
+  public void setMaxSize(long maxWeight) {
+    if (maxWeight < 1) {
+      throw new IllegalArgumentException("maxSize must be >= 1");
+    }
+    evictionLock.lock();
+    try {
+      this.maxWeight = maxWeight;
+      // 1% of the space is the admission window, 80% of the main space is protected
+      this.windowMaxWeight = Math.max(1, maxWeight / 100);
+      this.protectedMaxWeight = (maxWeight - windowMaxWeight) * 80 / 100;
+      this.sketch = new FrequencySketch(maxWeight);
+      maintenance();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public V get(K key) {
+    final Node<K, V> node = data.get(key);
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+    if (expireAfterAccessNanos > 0) {
+      final long now = System.nanoTime();
+      if (now - node.accessTime > expireAfterAccessNanos) {
+        misses.increment();
+        // let the maintenance remove it
+        scheduleMaintenance();
+        return null;
+      }
+      node.accessTime = now;
+    }
+    hits.increment();
+    if (readBuffer.offer(node)) {
+      // the buffer is full, apply the reads now
+      scheduleMaintenance();
+    }
+    return node.value;
+  }
+
+  public boolean containsKey(K key) {
+    final Node<K, V> node = data.get(key);
+    return node != null && (expireAfterAccessNanos == 0 || System.nanoTime() - node.accessTime <= expireAfterAccessNanos);
+  }
+
+  public V put(K key, V value) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(value);
+
+    final Node<K, V> node = new Node<>(key, value, weigher == null ? 1 : weigher.applyAsInt(key, value));
+    if (node.weight < 0) {
+      throw new IllegalArgumentException("weight must be >= 0");
+    }
+    node.accessTime = System.nanoTime();
+
+    evictionLock.lock();
+    try {
+      final Node<K, V> old = data.put(key, node);
+      if (old != null) {
+        unlink(old);
+      }
+      sketch.increment(key);
+      window.addLast(node);
+      node.queue = WINDOW;
+      windowWeight += node.weight;
+      totalWeight += node.weight;
+      maintenance();
+      return old == null ? null : old.value;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public V remove(K key) {
+    evictionLock.lock();
+    try {
+      final Node<K, V> node = data.remove(key);
+      if (node == null) {
+        return null;
+      }
+      unlink(node);
+      return node.value;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public void clear() {
+    evictionLock.lock();
+    try {
+      for (Node<K, V> node : data.values()) {
+        unlink(node);
+      }
+      data.clear();
+      readBuffer.drain(n -> {});
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of entries, including those that have expired but were not removed yet
+   */
+  public int size() {
+    return data.size();
+  }
+
+  /**
+   * @return the total weight of the entries
+   */
+  public long weightedSize() {
+    evictionLock.lock();
+    try {
+      return totalWeight;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  private void scheduleMaintenance() {
+    // readers never wait, if someone else is already doing the work the buffered reads will be applied by them
+    if (evictionLock.tryLock()) {
+      try {
+        maintenance();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void maintenance() {
+    readBuffer.drain(this::onAccess);
+    if (expireAfterAccessNanos > 0) {
+      expire();
+    }
+    evict();
+  }
+
+  private void onAccess(Node<K, V> node) {
+    sketch.increment(node.key);
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        // used again while on probation, promote it
+        probation.remove(node);
+        protectedSpace.addLast(node);
+        node.queue = PROTECTED;
+        protectedWeight += node.weight;
+        while (protectedWeight > protectedMaxWeight && protectedSpace.first != null) {
+          final Node<K, V> demoted = protectedSpace.removeFirst();
+          probation.addLast(demoted);
+          demoted.queue = PROBATION;
+          protectedWeight -= demoted.weight;
+        }
+        break;
+      case PROTECTED:
+        protectedSpace.moveToLast(node);
+        break;
+      default:
+        // removed in the meantime
+        break;
+    }
+  }
+
+  private void expire() {
+    final long now = System.nanoTime();
+    // each queue is in access order so the expired entries are at the head
+    expire(window, now);
+    expire(probation, now);
+    expire(protectedSpace, now);
+  }
+
+  private void expire(AccessOrderDeque<K, V> deque, long now) {
+    Node<K, V> node;
+    while ((node = deque.first) != null && now - node.accessTime > expireAfterAccessNanos) {
+      evictEntry(node);
+    }
+  }
+
+  private void evict() {
+    final long mainMaxWeight = maxWeight - windowMaxWeight;
+
+    // the window overflows into the main space, if there is no room the candidate must beat the victim
+    while (windowWeight > windowMaxWeight && window.first != null) {
+      final Node<K, V> candidate = window.first;
+
+      long mainWeight = totalWeight - windowWeight;
+      boolean admit = true;
+      while (mainWeight + candidate.weight > mainMaxWeight) {
+        final Node<K, V> victim = probation.first != null ? probation.first : protectedSpace.first;
+        if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+          admit = false;
+          break;
+        }
+        evictEntry(victim);
+        mainWeight -= victim.weight;
+      }
+
+      if (admit) {
+        window.remove(candidate);
+        windowWeight -= candidate.weight;
+        probation.addLast(candidate);
+        candidate.queue = PROBATION;
+      } else {
+        evictEntry(candidate);
+      }
+    }
+
+    // the bound could have been lowered or a heavy entry added
+    while (totalWeight > maxWeight) {
+      final Node<K, V> victim = probation.first != null ? probation.first :
+        protectedSpace.first != null ? protectedSpace.first : window.first;
+      if (victim == null) {
+        break;
+      }
+      evictEntry(victim);
+    }
+  }
+
+  private void evictEntry(Node<K, V> node) {
+    unlink(node);
+    if (data.remove(node.key, node)) {
+      evictions.increment();
+    }
+  }
+
+  private void unlink(Node<K, V> node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.remove(node);
+        windowWeight -= node.weight;
+        break;
+      case PROBATION:
+        probation.remove(node);
+        break;
+      case PROTECTED:
+        protectedSpace.remove(node);
+        protectedWeight -= node.weight;
+        break;
+      default:
+        return;
+    }
+    totalWeight -= node.weight;
+    node.queue = DEAD;
+  }
+
+  private static final class Node<K, V> {
+    final K key;
+    final V value;
+    final int weight;
+    volatile long accessTime;
+    // guarded by the eviction lock
+    int queue = DEAD;
+    Node<K, V> prev;
+    Node<K, V> next;
+
+    Node(K key, V value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Intrusive doubly linked list in access order, the least recently used entry first.
+   */
+  private static final class AccessOrderDeque<K, V> {
+    Node<K, V> first;
+    Node<K, V> last;
+
+    void addLast(Node<K, V> node) {
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    Node<K, V> removeFirst() {
+      final Node<K, V> node = first;
+      remove(node);
+      return node;
+    }
+
+    void remove(Node<K, V> node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+
+    void moveToLast(Node<K, V> node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+  }
+
+  /**
+   * Striped ring buffers recording reads. When a stripe is full further reads are dropped, the policy only needs a
+   * sample of them.
+   */
+  private static final class ReadBuffer<K, V> {
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    private final Stripe[] stripes;
+
+    ReadBuffer() {
+      int count = 1;
+      while (count < Runtime.getRuntime().availableProcessors()) {
+        count <<= 1;
+      }
+      stripes = new Stripe[count];
+      for (int i = 0; i < count; i++) {
+        stripes[i] = new Stripe();
+      }
+    }
+
+    /**
+     * @return true if the buffer should be drained
+     */
+    boolean offer(Node<K, V> node) {
+      final Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+      final long head = stripe.reads;
+      final long tail = stripe.writes.get();
+      if (tail - head >= SIZE) {
+        return true;
+      }
+      if (stripe.writes.compareAndSet(tail, tail + 1)) {
+        stripe.buffer.lazySet((int) (tail & MASK), node);
+        return tail + 1 - head >= SIZE;
+      }
+      return false;
+    }
+
+    // called under the eviction lock
+    @SuppressWarnings("unchecked")
+    void drain(Consumer<Node<K, V>> consumer) {
+      for (Stripe stripe : stripes) {
+        long head = stripe.reads;
+        final long tail = stripe.writes.get();
+        while (head < tail) {
+          final int idx = (int) (head & MASK);
+          final Node<K, V> node = (Node<K, V>) stripe.buffer.get(idx);
+          if (node == null) {
+            // the writer has not published it yet
+            break;
+          }
+          stripe.buffer.lazySet(idx, null);
+          consumer.accept(node);
+          head++;
+        }
+        stripe.reads = head;
+      }
+    }
+
+    private static final class Stripe {
+      final AtomicReferenceArray<Object> buffer = new AtomicReferenceArray<>(SIZE);
+      final AtomicLong writes = new AtomicLong();
+      volatile long reads;
+    }
+  }
+
+  /**
+   * A count-min sketch of 4 bit counters estimating how often keys were used. All counters are halved once the
+   * number of increments reaches a sample size so old popularity fades away.
+   */
+  private static final class FrequencySketch {
+    private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(long maxWeight) {
+      final int capacity = (int) Math.min(Math.max(maxWeight, 16), 1 << 20);
+      int length = 1;
+      while (length < capacity) {
+        length <<= 1;
+      }
+      // each long holds 16 counters, 4 per hash function
+      table = new long[Math.max(1, length >>> 2)];
+      tableMask = table.length - 1;
+      sampleSize = 10 * capacity;
+    }
+
+    int frequency(Object key) {
+      final int hash = spread(key.hashCode());
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        final int index = indexOf(hash, i);
+        final int offset = offsetOf(hash, i);
+        frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      final int hash = spread(key.hashCode());
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        final int index = indexOf(hash, i);
+        final int offset = offsetOf(hash, i);
+        final long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++size == sampleSize) {
+        reset();
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      size = size >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private int offsetOf(int hash, int i) {
+      // the counter of the i-th hash function inside the long, 4 bits each
+      return ((i << 2) + ((hash >>> (i << 3)) & 3)) << 2;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
+}
@@ -28,7 +28,9 @@ import java.util.function.BiFunction;
  * Note that remove operation on this structure is SLOW! Avoid using it.
  *
  * @author <a href="http://tfox.org">Tim Fox</a>
+ * @deprecated eviction is FIFO and not thread-safe, use {@link BoundedConcurrentCache}
  */
+@Deprecated
 public class ConcurrentLRUCache<K, V> extends ConcurrentHashMap<K, V> {
 
   private int maxSize;
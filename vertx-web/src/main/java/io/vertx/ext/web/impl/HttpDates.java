@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.impl;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Formatting and parsing of HTTP dates (RFC 7231 IMF-fixdate, e.g. {@code Sun, 06 Nov 1994 08:49:37 GMT}).
+ * <p>
+ * The formatters are immutable so they can be shared by all the event loops. The value of the {@code Date} header
+ * only changes once per second so the formatted current date is cached.
+ * <p>
+ * This class is thread-safe
+ */
+public final class HttpDates {
+
+  private static final DateTimeFormatter FORMATTER =
+    DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+  private static volatile CachedDate current = new CachedDate(0, format(0));
+
+  private HttpDates() {
+  }
+
+  /**
+   * Format a date.
+   *
+   * @param millis the date in milliseconds since the epoch
+   * @return the HTTP date
+   */
+  public static String format(long millis) {
+    return FORMATTER.format(Instant.ofEpochMilli(millis));
+  }
+
+  /**
+   * @return the current date formatted as a HTTP date, the value is computed at most once per second
+   */
+  public static String currentDate() {
+    final long second = System.currentTimeMillis() / 1000;
+    CachedDate cached = current;
+    if (cached.second != second) {
+      // concurrent updates compute the same value, the last one wins
+      cached = new CachedDate(second, format(second * 1000));
+      current = cached;
+    }
+    return cached.value;
+  }
+
+  /**
+   * Parse a HTTP date.
+   *
+   * @param date the HTTP date
+   * @return the date in milliseconds since the epoch or {@code -1} if the date is not valid
+   */
+  public static long parse(String date) {
+    if (date == null) {
+      return -1;
+    }
+    try {
+      return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+
+  private static final class CachedDate {
+    final long second;
+    final String value;
+
+    CachedDate(long second, String value) {
+      this.second = second;
+      this.value = value;
+    }
+  }
+}
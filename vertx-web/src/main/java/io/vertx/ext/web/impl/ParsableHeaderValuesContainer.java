@@ -1,49 +1,77 @@
 package io.vertx.ext.web.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.ext.web.LanguageHeader;
 import io.vertx.ext.web.MIMEHeader;
 import io.vertx.ext.web.ParsedHeaderValue;
 import io.vertx.ext.web.ParsedHeaderValues;
 
+/**
+ * Headers are only parsed the first time they are requested. As user agents keep sending the same few header values
+ * the parsed and sorted lists are shared between requests through a small frequency aware cache, the values in the
+ * cache are fully parsed before being published and never modified afterwards.
+ */
 public class ParsableHeaderValuesContainer implements ParsedHeaderValues {
 
+  private static final int CACHE_SIZE = 256;
+
+  private static final BoundedConcurrentCache<String, List<MIMEHeader>> ACCEPT_CACHE = new BoundedConcurrentCache<>(CACHE_SIZE);
+  private static final BoundedConcurrentCache<String, List<ParsedHeaderValue>> ACCEPT_CHARSET_CACHE = new BoundedConcurrentCache<>(CACHE_SIZE);
+  private static final BoundedConcurrentCache<String, List<ParsedHeaderValue>> ACCEPT_ENCODING_CACHE = new BoundedConcurrentCache<>(CACHE_SIZE);
+  private static final BoundedConcurrentCache<String, List<LanguageHeader>> ACCEPT_LANGUAGE_CACHE = new BoundedConcurrentCache<>(CACHE_SIZE);
+
+  private final HttpServerRequest request;
+
   private List<MIMEHeader> accept;
   private List<ParsedHeaderValue> acceptCharset;
   private List<ParsedHeaderValue> acceptEncoding;
   private List<LanguageHeader> acceptLanguage;
   private ParsableMIMEValue contentType;
 
-  public ParsableHeaderValuesContainer(
-      List<MIMEHeader> accept, List<ParsedHeaderValue> acceptCharset, List<ParsedHeaderValue> acceptEncoding,
-      List<LanguageHeader> acceptLanguage, ParsableMIMEValue contentType) {
-    this.accept = accept;
-    this.acceptCharset = acceptCharset;
-    this.acceptEncoding = acceptEncoding;
-    this.acceptLanguage = acceptLanguage;
-    this.contentType = contentType;
+  public ParsableHeaderValuesContainer(HttpServerRequest request) {
+    this.request = request;
   }
 
   @Override
   public List<MIMEHeader> accept() {
+    if (accept == null) {
+      accept = parse(ACCEPT_CACHE, request.getHeader("Accept"), ParsableMIMEValue::new);
+    }
     return accept;
   }
   @Override
   public List<ParsedHeaderValue> acceptCharset() {
+    if (acceptCharset == null) {
+      acceptCharset = parse(ACCEPT_CHARSET_CACHE, request.getHeader("Accept-Charset"), ParsableHeaderValue::new);
+    }
     return acceptCharset;
   }
   @Override
   public List<ParsedHeaderValue> acceptEncoding() {
+    if (acceptEncoding == null) {
+      acceptEncoding = parse(ACCEPT_ENCODING_CACHE, request.getHeader("Accept-Encoding"), ParsableHeaderValue::new);
+    }
     return acceptEncoding;
   }
   @Override
   public List<LanguageHeader> acceptLanguage() {
+    if (acceptLanguage == null) {
+      acceptLanguage = parse(ACCEPT_LANGUAGE_CACHE, request.getHeader("Accept-Language"), ParsableLanguageValue::new);
+    }
     return acceptLanguage;
   }
   @Override
   public ParsableMIMEValue contentType() {
+    if (contentType == null) {
+      final String value = request.getHeader("Content-Type");
+      contentType = new ParsableMIMEValue(value == null ? "" : value);
+    }
     return contentType;
   }
 
@@ -57,4 +85,24 @@ public class ParsableHeaderValuesContainer implements ParsedHeaderValues {
     }
     return null;
   }
+
+  private static <T extends ParsedHeaderValue> List<T> parse(BoundedConcurrentCache<String, List<T>> cache, String header, Function<String, T> objectCreator) {
+    if (header == null || header.length() == 0) {
+      return Collections.emptyList();
+    }
+
+    List<T> parsed = cache.get(header);
+    if (parsed == null) {
+      List<T> values = HeaderParser.sort(HeaderParser.convertToParsedHeaderValues(header, objectCreator));
+      // the values are parsed lazily and not thread safe, they must be fully parsed before being shared
+      // (sorting a single value does not parse it)
+      for (T value : values) {
+        ((ParsableHeaderValue) value).forceParse();
+      }
+      parsed = Collections.unmodifiableList(new ArrayList<>(values));
+      // unusual values will not push the common ones out of the cache
+      cache.put(header, parsed);
+    }
+    return parsed;
+  }
 }
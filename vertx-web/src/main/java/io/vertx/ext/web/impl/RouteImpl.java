@@ -16,7 +16,6 @@
 
 package io.vertx.ext.web.impl;
 
-import io.netty.handler.codec.http.QueryStringDecoder;
 import io.vertx.core.Handler;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
@@ -33,6 +32,10 @@ import java.util.regex.Pattern;
 /**
  * This class is thread-safe
  * <p>
+ * The route is configured under its monitor, every change publishes a new immutable {@link State} which is the only
+ * thing read while routing, so matching and dispatching never lock. The position in the list of handlers is kept by
+ * the routing context.
+ * <p>
  * Some parts (e.g. content negotiation) from Yoke by Paulo Lopes
  *
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -50,20 +53,21 @@ public class RouteImpl implements Route {
   private int order;
   private boolean enabled = true;
   private List<Handler<RoutingContext>> contextHandlers;
-  private int actualHandlerIndex;
   private List<Handler<RoutingContext>> failureHandlers;
-  private int actualFailureHandlerIndex;
   private boolean added;
   private Pattern pattern;
   private List<String> groups;
   private boolean useNormalisedPath = true;
+  private boolean pathPattern;
+  private boolean exactPath;
+  private volatile State state;
 
   RouteImpl(RouterImpl router, int order) {
     this.router = router;
     this.order = order;
     this.contextHandlers = new ArrayList<>();
     this.failureHandlers = new ArrayList<>();
-    resetIndexes();
+    changed();
   }
 
   RouteImpl(RouterImpl router, int order, HttpMethod method, String path) {
@@ -71,28 +75,33 @@ public class RouteImpl implements Route {
     methods.add(method);
     checkPath(path);
     setPath(path);
+    changed();
   }
 
   RouteImpl(RouterImpl router, int order, String path) {
     this(router, order);
     checkPath(path);
     setPath(path);
+    changed();
   }
 
   RouteImpl(RouterImpl router, int order, HttpMethod method, String regex, boolean bregex) {
     this(router, order);
     methods.add(method);
     setRegex(regex);
+    changed();
   }
 
   RouteImpl(RouterImpl router, int order, String regex, boolean bregex) {
     this(router, order);
     setRegex(regex);
+    changed();
   }
 
   @Override
   public synchronized Route method(HttpMethod method) {
     methods.add(method);
+    changed();
     return this;
   }
 
@@ -100,12 +109,14 @@ public class RouteImpl implements Route {
   public synchronized Route path(String path) {
     checkPath(path);
     setPath(path);
+    changed();
     return this;
   }
 
   @Override
   public synchronized Route pathRegex(String regex) {
     setRegex(regex);
+    changed();
     return this;
   }
 
@@ -113,6 +124,7 @@ public class RouteImpl implements Route {
   public synchronized Route produces(String contentType) {
     ParsableMIMEValue value = new ParsableMIMEValue(contentType).forceParse();
     produces.add(value);
+    changed();
     return this;
   }
 
@@ -120,6 +132,7 @@ public class RouteImpl implements Route {
   public synchronized Route consumes(String contentType) {
     ParsableMIMEValue value = new ParsableMIMEValue(contentType).forceParse();
     consumes.add(value);
+    changed();
     return this;
   }
 
@@ -140,6 +153,7 @@ public class RouteImpl implements Route {
   @Override
   public synchronized Route handler(Handler<RoutingContext> contextHandler) {
     this.contextHandlers.add(contextHandler);
+    changed();
     checkAdd();
     return this;
   }
@@ -157,6 +171,7 @@ public class RouteImpl implements Route {
   @Override
   public synchronized Route failureHandler(Handler<RoutingContext> exceptionHandler) {
     this.failureHandlers.add(exceptionHandler);
+    changed();
     checkAdd();
     return this;
   }
@@ -170,34 +185,38 @@ public class RouteImpl implements Route {
   @Override
   public synchronized Route disable() {
     enabled = false;
+    changed();
     return this;
   }
 
   @Override
   public synchronized Route enable() {
     enabled = true;
+    changed();
     return this;
   }
 
   @Override
-  public Route useNormalisedPath(boolean useNormalisedPath) {
+  public synchronized Route useNormalisedPath(boolean useNormalisedPath) {
     this.useNormalisedPath = useNormalisedPath;
+    changed();
     return this;
   }
 
   @Override
   public String getPath() {
-    return path;
+    return state.path;
   }
 
   @Override
-  public Route setRegexGroupsNames(List<String> groups) {
+  public synchronized Route setRegexGroupsNames(List<String> groups) {
     this.groups = groups;
+    changed();
     return this;
   }
 
   @Override
-  public String toString() {
+  public synchronized String toString() {
     StringBuilder sb = new StringBuilder("Route[ ");
     sb.append("path:").append(path);
     sb.append(" pattern:").append(pattern);
@@ -217,45 +236,56 @@ public class RouteImpl implements Route {
     return sb.toString();
   }
 
-  synchronized void handleContext(RoutingContext context) {
-    if (this.hasNextContextHandler()) {
-      actualHandlerIndex++;
-      contextHandlers.get(actualHandlerIndex - 1).handle(context);
+  boolean hasNextContextHandler(RoutingContextImplBase context) {
+    return context.currentRouteNextHandlerIndex < state.contextHandlers.size();
+  }
+
+  boolean hasNextFailureHandler(RoutingContextImplBase context) {
+    return context.currentRouteNextFailureHandlerIndex < state.failureHandlers.size();
+  }
+
+  void handleContext(RoutingContextImplBase context) {
+    final List<Handler<RoutingContext>> handlers = state.contextHandlers;
+    if (context.currentRouteNextHandlerIndex < handlers.size()) {
+      handlers.get(context.currentRouteNextHandlerIndex++).handle(context);
     }
   }
 
-  synchronized void handleFailure(RoutingContext context) {
-    if (this.hasNextFailureHandler()) {
-      actualFailureHandlerIndex++;
-      failureHandlers.get(actualFailureHandlerIndex - 1).handle(context);
+  void handleFailure(RoutingContextImplBase context) {
+    final List<Handler<RoutingContext>> handlers = state.failureHandlers;
+    if (context.currentRouteNextFailureHandlerIndex < handlers.size()) {
+      handlers.get(context.currentRouteNextFailureHandlerIndex++).handle(context);
     }
   }
 
-  synchronized boolean matches(RoutingContext context, String mountPoint, boolean failure) {
+  boolean matches(RoutingContext context, String mountPoint, boolean failure) {
+    // read the snapshot once so the whole match sees a consistent route
+    final State state = this.state;
 
-    if (failure && !hasNextFailureHandler() || !failure && !hasNextContextHandler()) {
+    if (failure && state.failureHandlers.isEmpty() || !failure && state.contextHandlers.isEmpty()) {
       return false;
     }
-    if (!enabled) {
+    if (!state.enabled) {
       return false;
     }
     HttpServerRequest request = context.request();
-    if (!methods.isEmpty() && !methods.contains(request.method())) {
+    if (!state.methods.isEmpty() && !state.methods.contains(request.method())) {
       return false;
     }
-    if (path != null && pattern == null && !pathMatches(mountPoint, context)) {
+    if (state.path != null && state.pattern == null && !pathMatches(state, mountPoint, context)) {
       return false;
     }
-    if (pattern != null) {
-      String path = useNormalisedPath ? Utils.normalizePath(context.request().path()) : context.request().path();
+    if (state.pattern != null) {
+      String path = state.useNormalisedPath ? context.normalisedPath() : context.request().path();
       if (mountPoint != null) {
         path = path.substring(mountPoint.length());
       }
 
-      Matcher m = pattern.matcher(path);
+      Matcher m = state.pattern.matcher(path);
       if (m.matches()) {
         if (m.groupCount() > 0) {
           Map<String, String> params = new HashMap<>(m.groupCount());
+          final List<String> groups = state.groups;
           if (groups != null) {
             // Pattern - named params
             // decode the path as it could contain escaped chars.
@@ -298,31 +328,25 @@ public class RouteImpl implements Route {
       }
     }
 
-    // Check if query params are already parsed
-    if (context.queryParams().size() == 0) {
-      // Decode query parameters and put inside context.queryParams
-      Map<String, List<String>> decodedParams = new QueryStringDecoder(request.uri()).parameters();
-
-      for (Map.Entry<String, List<String>> entry : decodedParams.entrySet())
-        context.queryParams().add(entry.getKey(), entry.getValue());
-    }
-
-    if (!consumes.isEmpty()) {
+    if (!state.consumes.isEmpty()) {
       // Can this route consume the specified content type
       MIMEHeader contentType = context.parsedHeaders().contentType();
-      MIMEHeader consumal = contentType.findMatchedBy(consumes);
+      MIMEHeader consumal = contentType.findMatchedBy(state.consumes);
       if (consumal == null) {
         return false;
       }
     }
-    List<MIMEHeader> acceptableTypes = context.parsedHeaders().accept();
-    if (!produces.isEmpty() && !acceptableTypes.isEmpty()) {
-      MIMEHeader selectedAccept = context.parsedHeaders().findBestUserAcceptedIn(acceptableTypes, produces);
-      if (selectedAccept != null) {
-        context.setAcceptableContentType(selectedAccept.rawValue());
-        return true;
+    if (!state.produces.isEmpty()) {
+      // only parse the accept header when the route needs it
+      List<MIMEHeader> acceptableTypes = context.parsedHeaders().accept();
+      if (!acceptableTypes.isEmpty()) {
+        MIMEHeader selectedAccept = context.parsedHeaders().findBestUserAcceptedIn(acceptableTypes, state.produces);
+        if (selectedAccept != null) {
+          context.setAcceptableContentType(selectedAccept.rawValue());
+          return true;
+        }
+        return false;
       }
-      return false;
     }
     return true;
   }
@@ -331,13 +355,74 @@ public class RouteImpl implements Route {
     return router;
   }
 
-  private boolean pathMatches(String mountPoint, RoutingContext ctx) {
-    String thePath = mountPoint == null ? path : mountPoint + path;
+  boolean isEnabled() {
+    return state.enabled;
+  }
+
+  Set<HttpMethod> methods() {
+    return state.methods;
+  }
+
+  /**
+   * The literal path prefix every request path matched by this route starts with, used to build the
+   * {@link RouteIndex}.
+   *
+   * @return the key or {@code null} if the route must always be tried
+   */
+  String indexKey() {
+    final State state = this.state;
+    final String path = state.path;
+
+    if (path == null || !state.useNormalisedPath) {
+      return null;
+    }
+    if (state.pattern == null) {
+      // exact paths and prefixes ending with a slash also match the path without the trailing slash
+      return path.length() > 0 && path.charAt(path.length() - 1) == '/' ? path.substring(0, path.length() - 1) : path;
+    }
+    if (!state.pathPattern) {
+      // a user supplied regex
+      return null;
+    }
+    // unescaped regex operators could match anything
+    for (int i = 0; i < path.length(); i++) {
+      switch (path.charAt(i)) {
+        case '?':
+        case '[':
+        case ']':
+        case '{':
+        case '}':
+        case '|':
+        case '^':
+        case '\\':
+          return null;
+      }
+    }
+    // the literal part of the pattern before the first parameter
+    for (int i = 0; i < path.length(); i++) {
+      switch (path.charAt(i)) {
+        case ':':
+          return path.substring(0, i);
+        case '*':
+          // the star applies to the previous char
+          return path.substring(0, Math.max(0, i - 1));
+      }
+    }
+    return path;
+  }
+
+  boolean isExactIndexKey() {
+    final State state = this.state;
+    return state.pattern == null && state.exactPath;
+  }
+
+  private boolean pathMatches(State state, String mountPoint, RoutingContext ctx) {
+    String thePath = mountPoint == null ? state.path : mountPoint + state.path;
     String requestPath;
 
-    if (useNormalisedPath) {
-      // never null
-      requestPath = Utils.normalizePath(ctx.request().path());
+    if (state.useNormalisedPath) {
+      // never null, computed once per request
+      requestPath = ctx.normalisedPath();
     } else {
       requestPath = ctx.request().path();
       // can be null
@@ -346,7 +431,7 @@ public class RouteImpl implements Route {
       }
     }
 
-    if (exactPath) {
+    if (state.exactPath) {
       return pathMatchesExact(requestPath, thePath);
     } else {
       if (thePath.endsWith("/") && requestPath.equals(removeTrailing(thePath))) {
@@ -374,8 +459,10 @@ public class RouteImpl implements Route {
     // a regex for that
     if (path.indexOf(':') != -1) {
       createPatternRegex(path);
+      pathPattern = true;
       this.path = path;
     } else {
+      pathPattern = false;
       if (path.charAt(path.length() - 1) != '*') {
         exactPath = true;
         this.path = path;
@@ -389,6 +476,7 @@ public class RouteImpl implements Route {
   private void setRegex(String regex) {
     // Check if there are any groups with names
     pattern = Pattern.compile(regex);
+    pathPattern = false;
   }
 
   // intersection of regex chars and https://tools.ietf.org/html/rfc3986#section-3.3
@@ -427,8 +515,6 @@ public class RouteImpl implements Route {
     }
   }
 
-  private boolean exactPath;
-
   int order() {
     return order;
   }
@@ -440,16 +526,46 @@ public class RouteImpl implements Route {
     }
   }
 
-  synchronized protected boolean hasNextContextHandler() {
-    return actualHandlerIndex < contextHandlers.size();
-  }
-
-  synchronized protected boolean hasNextFailureHandler() {
-    return actualFailureHandlerIndex < failureHandlers.size();
+  private void changed() {
+    // publish the new configuration to the routing threads
+    state = new State(this);
+    if (added) {
+      router.routesChanged();
+    }
   }
 
-  synchronized protected void resetIndexes() {
-    actualFailureHandlerIndex = 0;
-    actualHandlerIndex = 0;
+  /**
+   * An immutable snapshot of the route configuration.
+   */
+  private static final class State {
+    private final String path;
+    private final Set<HttpMethod> methods;
+    private final Set<MIMEHeader> consumes;
+    private final Set<MIMEHeader> produces;
+    private final boolean enabled;
+    private final List<Handler<RoutingContext>> contextHandlers;
+    private final List<Handler<RoutingContext>> failureHandlers;
+    private final Pattern pattern;
+    private final List<String> groups;
+    private final boolean useNormalisedPath;
+    private final boolean pathPattern;
+    private final boolean exactPath;
+
+    State(RouteImpl route) {
+      path = route.path;
+      methods = route.methods.isEmpty() ?
+        Collections.emptySet() :
+        Collections.unmodifiableSet(EnumSet.copyOf(route.methods));
+      consumes = Collections.unmodifiableSet(new LinkedHashSet<>(route.consumes));
+      produces = Collections.unmodifiableSet(new LinkedHashSet<>(route.produces));
+      enabled = route.enabled;
+      contextHandlers = Collections.unmodifiableList(new ArrayList<>(route.contextHandlers));
+      failureHandlers = Collections.unmodifiableList(new ArrayList<>(route.failureHandlers));
+      pattern = route.pattern;
+      groups = route.groups == null ? null : Collections.unmodifiableList(new ArrayList<>(route.groups));
+      useNormalisedPath = route.useNormalisedPath;
+      pathPattern = route.pathPattern;
+      exactPath = route.exactPath;
+    }
   }
 }
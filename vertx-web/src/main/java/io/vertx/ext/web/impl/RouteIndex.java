@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.impl;
+
+import io.vertx.core.http.HttpMethod;
+
+import java.util.*;
+
+/**
+ * An immutable, compiled view of the routes of a router used to select the candidate routes for a request.
+ * <p>
+ * Literal paths, {@code *} prefixes and the literal prefix of {@code :param} paths are stored in a radix tree keyed
+ * by path characters, routes without a path, regex routes and routes not using the normalised path are always
+ * candidates. Candidates are then filtered by HTTP method. The index only ever returns a superset of the routes
+ * that match, in route order, the real check is still done by {@link RouteImpl#matches}.
+ * <p>
+ * This class is thread-safe
+ */
+final class RouteIndex {
+
+  private static final Node[] NO_CHILDREN = new Node[0];
+
+  private final int version;
+  private final RouteImpl[] routes;
+  private final BitSet fallback;
+  private final EnumMap<HttpMethod, BitSet> methods = new EnumMap<>(HttpMethod.class);
+  private final Node root = new Node("");
+
+  RouteIndex(Collection<RouteImpl> sortedRoutes, int version) {
+    this.version = version;
+    List<RouteImpl> enabled = new ArrayList<>(sortedRoutes.size());
+    for (RouteImpl route : sortedRoutes) {
+      if (route.isEnabled()) {
+        enabled.add(route);
+      }
+    }
+    routes = enabled.toArray(new RouteImpl[enabled.size()]);
+    fallback = new BitSet(routes.length);
+
+    for (HttpMethod method : HttpMethod.values()) {
+      methods.put(method, new BitSet(routes.length));
+    }
+
+    for (int i = 0; i < routes.length; i++) {
+      final RouteImpl route = routes[i];
+
+      if (route.methods().isEmpty()) {
+        for (BitSet mask : methods.values()) {
+          mask.set(i);
+        }
+      } else {
+        for (HttpMethod method : route.methods()) {
+          methods.get(method).set(i);
+        }
+      }
+
+      final String key = route.indexKey();
+      if (key == null) {
+        fallback.set(i);
+      } else {
+        insert(key, route.isExactIndexKey(), i);
+      }
+    }
+  }
+
+  int version() {
+    return version;
+  }
+
+  /**
+   * Return the routes that may match a request in route order.
+   *
+   * @param method the request method
+   * @param path the normalised request path, relative to the mount point, or {@code null} if the path cannot be used
+   * @return the candidate routes
+   */
+  Iterator<RouteImpl> candidates(HttpMethod method, String path) {
+    if (path == null) {
+      return Arrays.asList(routes).iterator();
+    }
+
+    final BitSet hits = (BitSet) fallback.clone();
+    lookup(path, hits);
+    hits.and(methods.get(method));
+
+    return new Iterator<RouteImpl>() {
+      private int next = hits.nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return next != -1;
+      }
+
+      @Override
+      public RouteImpl next() {
+        if (next == -1) {
+          throw new NoSuchElementException();
+        }
+        RouteImpl route = routes[next];
+        next = hits.nextSetBit(next + 1);
+        return route;
+      }
+    };
+  }
+
+  private void insert(String key, boolean exact, int rank) {
+    Node node = root;
+    int i = 0;
+
+    while (i < key.length()) {
+      final int idx = node.indexOf(key.charAt(i));
+      if (idx == -1) {
+        Node child = new Node(key.substring(i));
+        node.add(child);
+        node = child;
+        break;
+      }
+
+      Node child = node.children[idx];
+      final String label = child.label;
+      int common = 0;
+      while (common < label.length() && i + common < key.length() && label.charAt(common) == key.charAt(i + common)) {
+        common++;
+      }
+
+      if (common < label.length()) {
+        // split the edge so the key ends on a node boundary
+        Node split = new Node(label.substring(0, common));
+        child.label = label.substring(common);
+        split.add(child);
+        node.children[idx] = split;
+        child = split;
+      }
+
+      node = child;
+      i += common;
+    }
+
+    if (exact) {
+      if (node.exact == null) {
+        node.exact = new BitSet(routes.length);
+      }
+      node.exact.set(rank);
+    } else {
+      if (node.prefix == null) {
+        node.prefix = new BitSet(routes.length);
+      }
+      node.prefix.set(rank);
+    }
+  }
+
+  private void lookup(String path, BitSet hits) {
+    // exact paths ignore a single trailing slash
+    final int exactLength = path.length() > 0 && path.charAt(path.length() - 1) == '/' ? path.length() - 1 : path.length();
+
+    Node node = root;
+    int i = 0;
+
+    while (true) {
+      if (node.prefix != null) {
+        hits.or(node.prefix);
+      }
+      if (i == exactLength && node.exact != null) {
+        hits.or(node.exact);
+      }
+      if (i == path.length()) {
+        return;
+      }
+      final int idx = node.indexOf(path.charAt(i));
+      if (idx == -1) {
+        return;
+      }
+      final Node child = node.children[idx];
+      if (!path.regionMatches(i, child.label, 0, child.label.length())) {
+        return;
+      }
+      i += child.label.length();
+      node = child;
+    }
+  }
+
+  private static final class Node {
+    private String label;
+    private Node[] children = NO_CHILDREN;
+    private BitSet prefix;
+    private BitSet exact;
+
+    Node(String label) {
+      this.label = label;
+    }
+
+    int indexOf(char c) {
+      for (int i = 0; i < children.length; i++) {
+        if (children[i].label.charAt(0) == c) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void add(Node child) {
+      children = Arrays.copyOf(children, children.length + 1);
+      children[children.length - 1] = child;
+    }
+  }
+}
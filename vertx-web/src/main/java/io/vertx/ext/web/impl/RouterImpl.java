@@ -71,12 +71,15 @@ public class RouterImpl implements Router {
 
   private final AtomicInteger orderSequence = new AtomicInteger();
   private Handler<Throwable> exceptionHandler;
+  private final AtomicInteger routesVersion = new AtomicInteger();
+  private volatile boolean compiledDispatch;
+  private volatile RouteIndex index;
 
   @Override
   public void accept(HttpServerRequest request) {
     if (log.isTraceEnabled()) log.trace("Router: " + System.identityHashCode(this) +
       " accepting request " + request.method() + " " + request.absoluteURI());
-    new RoutingContextImpl(null, this, request, routes).next();
+    new RoutingContextImpl(null, this, request).next();
   }
 
   @Override
@@ -247,17 +250,18 @@ public class RouterImpl implements Router {
   @Override
   public Router clear() {
     routes.clear();
+    routesChanged();
     return this;
   }
 
   @Override
   public void handleContext(RoutingContext ctx) {
-    new RoutingContextWrapper(getAndCheckRoutePath(ctx), ctx.request(), routes, ctx).next();
+    new RoutingContextWrapper(getAndCheckRoutePath(ctx), ctx.request(), this, ctx).next();
   }
 
   @Override
   public void handleFailure(RoutingContext ctx) {
-    new RoutingContextWrapper(getAndCheckRoutePath(ctx), ctx.request(), routes, ctx).next();
+    new RoutingContextWrapper(getAndCheckRoutePath(ctx), ctx.request(), this, ctx).next();
   }
 
   @Override
@@ -278,20 +282,55 @@ public class RouterImpl implements Router {
     return this;
   }
 
+  @Override
+  public Router useCompiledDispatch(boolean compiledDispatch) {
+    this.compiledDispatch = compiledDispatch;
+    routesChanged();
+    return this;
+  }
+
   void add(RouteImpl route) {
     routes.add(route);
+    routesChanged();
   }
 
   void remove(RouteImpl route) {
     routes.remove(route);
+    routesChanged();
+  }
+
+  void routesChanged() {
+    // the index is rebuilt lazily by the next request
+    routesVersion.incrementAndGet();
   }
 
   Vertx vertx() {
     return vertx;
   }
 
-  Iterator<RouteImpl> iterator() {
-    return routes.iterator();
+  /**
+   * Iterate the routes that may match the given context, in order. When compiled dispatch is disabled this is
+   * every route of the router.
+   */
+  Iterator<RouteImpl> iterator(RoutingContext ctx) {
+    if (!compiledDispatch) {
+      return routes.iterator();
+    }
+
+    final int version = routesVersion.get();
+    RouteIndex idx = index;
+    if (idx == null || idx.version() != version) {
+      idx = new RouteIndex(routes, version);
+      index = idx;
+    }
+
+    String path = ctx.normalisedPath();
+    final String mountPoint = ctx.mountPoint();
+    if (mountPoint != null) {
+      path = path.startsWith(mountPoint) ? path.substring(mountPoint.length()) : null;
+    }
+
+    return idx.candidates(ctx.request().method(), path);
   }
 
   Handler<Throwable> exceptionHandler() {
@@ -17,6 +17,7 @@
 package io.vertx.ext.web.impl;
 
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.QueryStringDecoder;
 import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
@@ -39,7 +40,6 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class RoutingContextImpl extends RoutingContextImplBase {
 
-  private final RouterImpl router;
   private Map<String, Object> data;
   private Map<String, String> pathParams;
   private MultiMap queryParams;
@@ -59,37 +59,15 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   private Session session;
   private User user;
 
-  public RoutingContextImpl(String mountPoint, RouterImpl router, HttpServerRequest request, Set<RouteImpl> routes) {
-    super(mountPoint, request, routes);
-    this.router = router;
+  public RoutingContextImpl(String mountPoint, RouterImpl router, HttpServerRequest request) {
+    super(mountPoint, request, router);
 
-    fillParsedHeaders(request);
+    parsedHeaders = new ParsableHeaderValuesContainer(request);
     if (request.path().charAt(0) != '/') {
       fail(404);
     }
   }
 
-  private String ensureNotNull(String string){
-    return string == null ? "" : string;
-  }
-
-  private void fillParsedHeaders(HttpServerRequest request) {
-    String accept = request.getHeader("Accept");
-    String acceptCharset = request.getHeader ("Accept-Charset");
-    String acceptEncoding = request.getHeader("Accept-Encoding");
-    String acceptLanguage = request.getHeader("Accept-Language");
-    String contentType = ensureNotNull(request.getHeader("Content-Type"));
-
-    parsedHeaders = new ParsableHeaderValuesContainer(
-        HeaderParser.sort(HeaderParser.convertToParsedHeaderValues(accept, ParsableMIMEValue::new)),
-        HeaderParser.sort(HeaderParser.convertToParsedHeaderValues(acceptCharset, ParsableHeaderValue::new)),
-        HeaderParser.sort(HeaderParser.convertToParsedHeaderValues(acceptEncoding, ParsableHeaderValue::new)),
-        HeaderParser.sort(HeaderParser.convertToParsedHeaderValues(acceptLanguage, ParsableLanguageValue::new)),
-        new ParsableMIMEValue(contentType)
-    );
-
-  }
-
   @Override
   public HttpServerRequest request() {
     return request;
@@ -342,6 +320,8 @@ public class RoutingContextImpl extends RoutingContextImplBase {
       path = path.substring(0, split);
     }
 
+    // the query params always refer to the original request, decode them before the uri is rewritten
+    getQueryParams();
     ((HttpServerRequestWrapper) request).setMethod(method);
     ((HttpServerRequestWrapper) request).setPath(path);
     request.params().clear();
@@ -401,8 +381,16 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   }
 
   private MultiMap getQueryParams() {
+    // Decoded once per request, the first time the query params are requested
     if (queryParams == null) {
       queryParams = MultiMap.caseInsensitiveMultiMap();
+      final String uri = request.uri();
+      if (uri != null && uri.indexOf('?') != -1) {
+        Map<String, List<String>> decodedParams = new QueryStringDecoder(uri).parameters();
+        for (Map.Entry<String, List<String>> entry : decodedParams.entrySet()) {
+          queryParams.add(entry.getKey(), entry.getValue());
+        }
+      }
     }
     return queryParams;
   }
@@ -447,7 +435,7 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   }
 
   private void doFail() {
-    this.iter = router.iterator();
+    this.iter = router.iterator(this);
     currentRoute = null;
     next();
   }
@@ -24,7 +24,6 @@ import io.vertx.ext.web.Route;
 import io.vertx.ext.web.RoutingContext;
 
 import java.util.Iterator;
-import java.util.Set;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -33,18 +32,19 @@ public abstract class RoutingContextImplBase implements RoutingContext {
 
   static final Logger log = LoggerFactory.getLogger(RoutingContextImplBase.class);
 
-  private final Set<RouteImpl> routes;
-
+  protected final RouterImpl router;
   protected final String mountPoint;
   protected final HttpServerRequest request;
   protected Iterator<RouteImpl> iter;
   protected RouteImpl currentRoute;
+  // the position in the handlers of the current route, kept per request as routes are shared between event loops
+  protected int currentRouteNextHandlerIndex;
+  protected int currentRouteNextFailureHandlerIndex;
 
-  protected RoutingContextImplBase(String mountPoint, HttpServerRequest request, Set<RouteImpl> routes) {
+  protected RoutingContextImplBase(String mountPoint, HttpServerRequest request, RouterImpl router) {
     this.mountPoint = mountPoint;
     this.request = new HttpServerRequestWrapper(request);
-    this.routes = routes;
-    this.iter = routes.iterator();
+    this.router = router;
   }
 
   @Override
@@ -58,7 +58,8 @@ public abstract class RoutingContextImplBase implements RoutingContext {
   }
 
   protected void restart() {
-    this.iter = routes.iterator();
+    // the candidate routes depend on the path, so they are selected again on the next iteration
+    this.iter = null;
     currentRoute = null;
     next();
   }
@@ -67,10 +68,10 @@ public abstract class RoutingContextImplBase implements RoutingContext {
     boolean failed = failed();
     if (currentRoute != null) { // Handle multiple handlers inside route object
       try {
-        if (!failed && currentRoute.hasNextContextHandler()) {
+        if (!failed && currentRoute.hasNextContextHandler(this)) {
           currentRoute.handleContext(this);
           return true;
-        } else if (failed && currentRoute.hasNextFailureHandler()) {
+        } else if (failed && currentRoute.hasNextFailureHandler(this)) {
           currentRoute.handleFailure(this);
           return true;
         }
@@ -87,13 +88,17 @@ public abstract class RoutingContextImplBase implements RoutingContext {
         return true;
       }
     }
+    if (iter == null) {
+      iter = router.iterator(this);
+    }
     while (iter.hasNext()) { // Search for more handlers
       RouteImpl route = iter.next();
-      route.resetIndexes();
       if (route.matches(this, mountPoint(), failed)) {
         if (log.isTraceEnabled()) log.trace("Route matches: " + route);
         try {
           currentRoute = route;
+          currentRouteNextHandlerIndex = 0;
+          currentRouteNextFailureHandlerIndex = 0;
           if (log.isTraceEnabled()) log.trace("Calling the " + (failed ? "failure" : "") + " handler");
           if (failed) {
             route.handleFailure(this);
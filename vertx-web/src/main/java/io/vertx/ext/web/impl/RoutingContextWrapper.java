@@ -41,9 +41,9 @@ public class RoutingContextWrapper extends RoutingContextImplBase {
   protected final RoutingContext inner;
   private final String mountPoint;
 
-  public RoutingContextWrapper(String mountPoint, HttpServerRequest request, Set<RouteImpl> iter,
+  public RoutingContextWrapper(String mountPoint, HttpServerRequest request, RouterImpl router,
                                RoutingContext inner) {
-    super(mountPoint, request, iter);
+    super(mountPoint, request, router);
     this.inner = inner;
     String parentMountPoint = inner.mountPoint();
     if (mountPoint.charAt(mountPoint.length() - 1) == '/') {
@@ -80,6 +80,33 @@ public class Utils extends io.vertx.core.impl.Utils {
     return false;
   }
 
+  /**
+   * Checks in a single pass if a path has nothing to normalize, that is, no dot segments, no double slashes and,
+   * optionally, no escaped chars. Dots inside a segment, e.g. a file extension, are fine.
+   */
+  private static boolean isNormalized(CharSequence path, boolean checkEscapes) {
+    final int len = path.length();
+    char last = '/';
+    for (int i = 0; i < len; i++) {
+      final char c = path.charAt(i);
+      if (c == '/' && last == '/' && i > 0) {
+        return false;
+      }
+      if (c == '.' && last == '/') {
+        // a segment starting with a dot is only safe if it is not "." or ".."
+        final char next = i + 1 < len ? path.charAt(i + 1) : '/';
+        if (next == '/' || next == '.') {
+          return false;
+        }
+      }
+      if (checkEscapes && c == '%') {
+        return false;
+      }
+      last = c;
+    }
+    return true;
+  }
+
   private static void decodeUnreserved(StringBuilder path, int start) {
     if (start + 3 <= path.length()) {
       // these are latin chars so there is no danger of falling into some special unicode char that requires more
@@ -128,6 +155,11 @@ public class Utils extends io.vertx.core.impl.Utils {
       return "/";
     }
 
+    // most paths are already normalized, avoid any allocation
+    if (pathname.charAt(0) == '/' && isNormalized(pathname, true)) {
+      return pathname;
+    }
+
     StringBuilder ibuf = new StringBuilder(pathname.length() + 1);
 
     // Not standard!!!
@@ -169,6 +201,10 @@ public class Utils extends io.vertx.core.impl.Utils {
       return null;
     }
 
+    if (isNormalized(path, false)) {
+      return path.toString();
+    }
+
     final StringBuilder obuf = new StringBuilder(path.length());
 
     int i = 0;
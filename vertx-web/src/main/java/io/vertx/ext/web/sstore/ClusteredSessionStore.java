@@ -16,6 +16,8 @@
 
 package io.vertx.ext.web.sstore;
 
+import io.vertx.codegen.annotations.Fluent;
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.sstore.impl.ClusteredSessionStoreImpl;
@@ -38,6 +40,31 @@ public interface ClusteredSessionStore extends SessionStore {
    */
   long DEFAULT_RETRY_TIMEOUT = 5 * 1000; // 5 seconds
 
+  /**
+   * Enable a near cache of the sessions read or written by this node, so a session served by the same node again is
+   * not read from the cluster. A node writing a session notifies the other nodes on the event bus so they drop their
+   * cached copy, the cached copies are also dropped after the given time to live. Stale copies are still detected
+   * when the session is written. The near cache should be enabled on all the nodes sharing the session map.
+   *
+   * @param maxSize the max number of cached sessions, {@code 0} to disable the near cache
+   * @param timeToLive the max time, in ms, a session is served from the near cache after it was read or written
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  ClusteredSessionStore setNearCache(int maxSize, long timeToLive);
+
+  /**
+   * Set the codec of the session data written by this store, e.g. a {@link CompactSessionDataCodec}. By default the
+   * data is written in the format of the previous versions so a cluster can be upgraded node by node, set the codec
+   * once no node runs a previous version. All the nodes sharing the session map must use the same codec.
+   *
+   * @param codec the codec, {@code null} to write the format of the previous versions
+   * @return a reference to this, so the API can be used fluently
+   */
+  @GenIgnore
+  @Fluent
+  ClusteredSessionStore setDataCodec(SessionDataCodec codec);
+
   /**
    * Create a session store
    *
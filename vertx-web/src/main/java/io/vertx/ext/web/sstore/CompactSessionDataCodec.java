@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.sstore.impl.CompactSessionDataCodecImpl;
+
+import java.util.function.Function;
+
+/**
+ * The built-in session data codec.
+ * <p>
+ * Lengths and integral numbers are written as variable length integers, strings used as keys (map keys, Json field
+ * names and class names) are written once and then referenced by their index. {@link io.vertx.core.json.JsonObject}
+ * and {@link io.vertx.core.json.JsonArray} values are encoded natively. Other types can be registered with their own
+ * encoding, the remaining {@link java.io.Serializable} values fall back to Java serialization.
+ */
+public interface CompactSessionDataCodec extends SessionDataCodec {
+
+  /**
+   * Create a codec
+   *
+   * @return the codec
+   */
+  static CompactSessionDataCodec create() {
+    return new CompactSessionDataCodecImpl();
+  }
+
+  /**
+   * Register the encoding of a type. The type is identified by its name so all the nodes must register it.
+   *
+   * @param type the exact type of the values
+   * @param encoder encodes a value
+   * @param decoder decodes a value
+   * @return a reference to this, so the API can be used fluently
+   */
+  <T> CompactSessionDataCodec register(Class<T> type, Function<T, Buffer> encoder, Function<Buffer, T> decoder);
+
+  /**
+   * Set the max size of the encoded data of a session, larger sessions fail to be stored.
+   *
+   * @param maxSize the max size, in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  CompactSessionDataCodec setMaxSize(int maxSize);
+
+  /**
+   * @return the number of encoded sessions
+   */
+  long encodedCount();
+
+  /**
+   * @return the total size of the encoded sessions, in bytes
+   */
+  long encodedBytes();
+
+  /**
+   * @return the size of the largest encoded session, in bytes
+   */
+  long maxEncodedSize();
+}
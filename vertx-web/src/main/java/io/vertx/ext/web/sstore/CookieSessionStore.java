@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore;
+
+import io.vertx.codegen.annotations.Fluent;
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.sstore.impl.CookieSessionStoreImpl;
+
+import java.util.List;
+
+/**
+ * A session store which keeps the sessions in the session cookie, encrypted and authenticated with AES-GCM, so no
+ * state is kept on the server.
+ * <p>
+ * The first secret encrypts the sessions, all of them can decrypt sessions so secrets can be rotated by adding a new
+ * secret first and removing the old one once the sessions it encrypted expired. The keys are derived from the secrets
+ * with PBKDF2, still secrets must be long random strings. The derivation is deliberately slow and runs on the thread
+ * creating the store, once per secret, so create the store when deploying rather than while handling a request.
+ * <p>
+ * Sessions too large for a cookie are kept in a fallback store, if there is one. As the server keeps no state, a
+ * session kept in a cookie cannot be revoked: {@link #delete} and a logout only stop the client from sending the
+ * cookie, a copy of the cookie stays valid until the session times out, counted from the last time it was put.
+ */
+@VertxGen
+public interface CookieSessionStore extends SessionStore {
+
+  /**
+   * Default max size, in characters, of the cookie value. Browsers are required to support 4096 bytes per cookie,
+   * including its name and attributes.
+   */
+  int DEFAULT_MAX_COOKIE_SIZE = 3800;
+
+  /**
+   * Create a session store
+   *
+   * @param vertx  the Vert.x instance
+   * @param secrets  the secrets, the first one is used to encrypt the sessions
+   * @return the session store
+   */
+  static CookieSessionStore create(Vertx vertx, List<String> secrets) {
+    return new CookieSessionStoreImpl(vertx, secrets, null);
+  }
+
+  /**
+   * Create a session store
+   *
+   * @param vertx  the Vert.x instance
+   * @param secrets  the secrets, the first one is used to encrypt the sessions
+   * @param fallback  the store of the sessions too large for a cookie
+   * @return the session store
+   */
+  static CookieSessionStore create(Vertx vertx, List<String> secrets, SessionStore fallback) {
+    return new CookieSessionStoreImpl(vertx, secrets, fallback);
+  }
+
+  /**
+   * Set the max size of the cookie value, larger sessions are kept in the fallback store or fail to be stored if
+   * there is none.
+   *
+   * @param maxCookieSize  the max size, in characters
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  CookieSessionStore setMaxCookieSize(int maxCookieSize);
+
+  /**
+   * Set the codec of the session data written by this store, e.g. a {@link CompactSessionDataCodec} to fit larger
+   * sessions in a cookie. By default the data is written in the format of the previous versions, set the codec once
+   * no node sharing the secrets runs a previous version. All these nodes must use the same codec.
+   *
+   * @param codec the codec, {@code null} to write the format of the previous versions
+   * @return a reference to this, so the API can be used fluently
+   */
+  @GenIgnore
+  @Fluent
+  CookieSessionStore setDataCodec(SessionDataCodec codec);
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Map;
+
+/**
+ * Encodes the data of sessions which are stored in a serialized form, e.g. in a clustered session store.<p/>
+ *
+ * The codec is set on the store, see {@link CompactSessionDataCodec} for the built-in one. All the nodes sharing
+ * sessions must use the same codec. Implementations must be thread-safe and encode equal data to the same bytes, as
+ * the bytes are used to find out if the data changed.
+ */
+public interface SessionDataCodec {
+
+  /**
+   * Encode the session data.
+   *
+   * @param data the data, {@code null} if the session has no data
+   * @param buffer the buffer to append the encoded data to
+   */
+  void encode(Map<String, Object> data, Buffer buffer);
+
+  /**
+   * Decode the session data.
+   *
+   * @param buffer the buffer holding the encoded data
+   * @param pos the position of the encoded data in the buffer
+   * @param data the map to put the decoded data in
+   * @return the position after the encoded data
+   */
+  int decode(Buffer buffer, int pos, Map<String, Object> data);
+}
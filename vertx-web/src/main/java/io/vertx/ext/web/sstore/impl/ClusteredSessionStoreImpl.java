@@ -17,27 +17,54 @@
 package io.vertx.ext.web.sstore.impl;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.AsyncMap;
 import io.vertx.ext.auth.PRNG;
 import io.vertx.ext.web.Session;
+import io.vertx.ext.web.impl.BoundedConcurrentCache;
 import io.vertx.ext.web.sstore.ClusteredSessionStore;
+import io.vertx.ext.web.sstore.SessionDataCodec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
  */
-public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
+public class ClusteredSessionStoreImpl implements ClusteredSessionStore, WaitableSessionStore {
 
   private final Vertx vertx;
   private final PRNG random;
   private final String sessionMapName;
   private final long retryTimeout;
+  private volatile SessionDataCodec dataCodec;
+
+  // metrics
+  private final LongAdder conflicts = new LongAdder();
 
   // Clustered Map
   private volatile AsyncMap<String, Session> sessionMap;
 
+  // near cache, null when disabled
+  private volatile BoundedConcurrentCache<String, NearCacheEntry> nearCache;
+  private volatile long nearCacheTimeToLive;
+  private final LongAdder nearCacheHits = new LongAdder();
+  private final LongAdder nearCacheMisses = new LongAdder();
+
+  // sessions which were not found yet, by id, guarded by the map itself
+  private final Map<String, Waiter> waiters = new HashMap<>();
+  // notifications of the writes of the other nodes, guarded by this
+  private MessageConsumer<JsonObject> notifications;
+
   public ClusteredSessionStoreImpl(Vertx vertx, String sessionMapName, long retryTimeout) {
     this.vertx = vertx;
     this.sessionMapName = sessionMapName;
@@ -50,18 +77,85 @@ public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
     return retryTimeout;
   }
 
+  @Override
+  public synchronized ClusteredSessionStore setNearCache(int maxSize, long timeToLive) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maxSize must be >= 0");
+    }
+    if (timeToLive < 1) {
+      throw new IllegalArgumentException("timeToLive must be >= 1");
+    }
+    nearCacheTimeToLive = timeToLive;
+    if (maxSize == 0) {
+      nearCache = null;
+    } else if (nearCache == null) {
+      registerNotifications(null);
+      nearCache = new BoundedConcurrentCache<>(maxSize);
+    } else {
+      nearCache.setMaxSize(maxSize);
+    }
+    return this;
+  }
+
+  @Override
+  public ClusteredSessionStore setDataCodec(SessionDataCodec codec) {
+    this.dataCodec = codec;
+    return this;
+  }
+
+  /**
+   * @return the number of sessions read from the near cache
+   */
+  public long nearCacheHitCount() {
+    return nearCacheHits.sum();
+  }
+
+  /**
+   * @return the number of sessions which had to be read from the cluster while the near cache is enabled
+   */
+  public long nearCacheMissCount() {
+    return nearCacheMisses.sum();
+  }
+
+  /**
+   * @return the number of writes which failed because the stored session was found changed by a concurrent write
+   */
+  public long conflictCount() {
+    return conflicts.sum();
+  }
+
   @Override
   public Session createSession(long timeout) {
-    return new SessionImpl(random, timeout, DEFAULT_SESSIONID_LENGTH);
+    return createSession(timeout, DEFAULT_SESSIONID_LENGTH);
   }
 
   @Override
   public Session createSession(long timeout, int length) {
-    return new SessionImpl(random, timeout, length);
+    SessionImpl session = new SessionImpl(random, timeout, length);
+    session.setDataCodec(dataCodec);
+    return session;
   }
 
   @Override
   public void get(String id, Handler<AsyncResult<Session>> resultHandler) {
+    final BoundedConcurrentCache<String, NearCacheEntry> nearCache = this.nearCache;
+    if (nearCache != null) {
+      final NearCacheEntry entry = nearCache.get(id);
+      if (entry != null) {
+        final long now = System.currentTimeMillis();
+        if (now - entry.createTime < nearCacheTimeToLive && now - entry.session.lastAccessed() < entry.session.timeout()) {
+          nearCacheHits.increment();
+          // each request gets its own copy
+          SessionImpl session = entry.session.copy();
+          session.setPRNG(random);
+          resultHandler.handle(Future.succeededFuture(session));
+          return;
+        }
+        nearCache.remove(id);
+      }
+      nearCacheMisses.increment();
+    }
+
     getMap(res -> {
       if (res.succeeded()) {
         res.result().get(id, res2 -> {
@@ -69,6 +163,8 @@ public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
             SessionImpl session = (SessionImpl) res2.result();
             if (session != null) {
               session.setPRNG(random);
+              session.setDataCodec(dataCodec);
+              cache(session);
             }
             resultHandler.handle(Future.succeededFuture(res2.result()));
           } else {
@@ -81,12 +177,64 @@ public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
     });
   }
 
+  @Override
+  public void waitFor(String id, long timeout, Handler<AsyncResult<Session>> resultHandler) {
+    // the result is delivered on the context of the caller
+    final Context context = vertx.getOrCreateContext();
+    get(id, res -> {
+      if (res.failed() || res.result() != null || timeout <= 0) {
+        resultHandler.handle(res);
+        return;
+      }
+
+      final Handler<AsyncResult<Session>> handler = ar -> context.runOnContext(v -> resultHandler.handle(ar));
+      final Waiter waiter;
+      synchronized (waiters) {
+        Waiter current = waiters.get(id);
+        if (current != null) {
+          // there is already a read pending for this session
+          current.handlers.add(handler);
+          return;
+        }
+        waiter = new Waiter(id);
+        waiter.handlers.add(handler);
+        waiters.put(id, waiter);
+      }
+
+      waiter.timerId = vertx.setTimer(timeout, t -> {
+        if (removeWaiter(waiter)) {
+          // one last try, the notification might have been lost
+          get(id, waiter::complete);
+        }
+      });
+      registerNotifications(v -> {
+        // the session might have been stored before this node was notified of the writes
+        get(id, res2 -> {
+          if ((res2.failed() || res2.result() != null) && removeWaiter(waiter)) {
+            vertx.cancelTimer(waiter.timerId);
+            waiter.complete(res2);
+          }
+        });
+      });
+    });
+  }
+
+  private boolean removeWaiter(Waiter waiter) {
+    synchronized (waiters) {
+      return waiters.remove(waiter.id, waiter);
+    }
+  }
+
   @Override
   public void delete(String id, Handler<AsyncResult<Void>> resultHandler) {
     getMap(res -> {
       if (res.succeeded()) {
         res.result().remove(id, res2 -> {
           if (res2.succeeded()) {
+            if (nearCache != null) {
+              nearCache.remove(id);
+              publish(id, -1, -1);
+            }
             resultHandler.handle(Future.succeededFuture());
           } else {
             resultHandler.handle(Future.failedFuture(res2.cause()));
@@ -102,49 +250,157 @@ public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
   public void put(Session session, Handler<AsyncResult<Void>> resultHandler) {
     getMap(res -> {
       if (res.succeeded()) {
-        // we need to take care of the transactionality of session data
-        res.result().get(session.id(), old -> {
-          final SessionImpl oldSession;
-          final SessionImpl newSession = (SessionImpl) session;
-          // only care if succeeded
-          if (old.succeeded()) {
-            oldSession = (SessionImpl) old.result();
-          } else {
-            // either not existent or error getting it from the map
-            oldSession = null;
-          }
+        final SessionImpl newSession = (SessionImpl) session;
+        newSession.setDataCodec(dataCodec);
+        // the version must be taken before it changes
+        final int version = newSession.version();
+        newSession.incrementVersion();
+        write(res.result(), newSession, newSession.isStored(), version, resultHandler);
+      } else {
+        resultHandler.handle(Future.failedFuture(res.cause()));
+      }
+    });
+  }
 
-          if (oldSession != null) {
-            // there was already some stored data in this case we need to validate versions
-            if (oldSession.version() != newSession.version()) {
-              resultHandler.handle(Future.failedFuture("Version mismatch"));
-              return;
-            }
-          }
+  /**
+   * Write a session if the stored version is still the one it was read with. Sessions never stored are written in a
+   * single round trip, the others are read first as only a put can refresh the time to live of the entry. This check
+   * is not atomic: AsyncMap has no compare-and-set taking a time to live, so a write of another node between the read
+   * and the put is not detected.
+   */
+  private void write(AsyncMap<String, Session> map, SessionImpl session, boolean stored, int version, Handler<AsyncResult<Void>> resultHandler) {
+    if (!stored) {
+      map.putIfAbsent(session.id(), session, session.timeout(), res -> {
+        if (res.failed()) {
+          resultHandler.handle(Future.failedFuture(res.cause()));
+        } else if (res.result() == null) {
+          stored(session, true, resultHandler);
+        } else {
+          checkAndPut(map, session, (SessionImpl) res.result(), version, resultHandler);
+        }
+      });
+    } else {
+      map.get(session.id(), res -> {
+        if (res.failed()) {
+          resultHandler.handle(Future.failedFuture(res.cause()));
+        } else if (res.result() == null) {
+          // the stored session expired or was deleted meanwhile, store it again
+          write(map, session, false, version, resultHandler);
+        } else {
+          checkAndPut(map, session, (SessionImpl) res.result(), version, resultHandler);
+        }
+      });
+    }
+  }
 
-          // we can now safely store the new version
-          newSession.incrementVersion();
+  private void checkAndPut(AsyncMap<String, Session> map, SessionImpl session, SessionImpl current, int version, Handler<AsyncResult<Void>> resultHandler) {
+    // a local map can hold this very instance, whose version was already incremented
+    if (current != session && current.version() != version) {
+      // the data was changed by someone else, this would be a lost update
+      conflicts.increment();
+      final BoundedConcurrentCache<String, NearCacheEntry> nearCache = this.nearCache;
+      if (nearCache != null) {
+        // the next request should read the current version
+        nearCache.remove(session.id());
+      }
+      resultHandler.handle(Future.failedFuture("Version mismatch"));
+      return;
+    }
 
-          res.result().put(session.id(), session, session.timeout(), res2 -> {
-            if (res2.succeeded()) {
-              resultHandler.handle(Future.succeededFuture());
-            } else {
-              resultHandler.handle(Future.failedFuture(res2.cause()));
-            }
-          });
-        });
+    map.put(session.id(), session, session.timeout(), res -> {
+      if (res.succeeded()) {
+        stored(session, false, resultHandler);
       } else {
         resultHandler.handle(Future.failedFuture(res.cause()));
       }
     });
   }
 
+  private void stored(SessionImpl session, boolean created, Handler<AsyncResult<Void>> resultHandler) {
+    session.markStored();
+    cache(session);
+    // new sessions might be waited for by the other nodes
+    if (created || nearCache != null) {
+      publish(session.id(), session.version(), session.lastAccessed());
+    }
+    resultHandler.handle(Future.succeededFuture());
+  }
+
+  private void cache(SessionImpl session) {
+    final BoundedConcurrentCache<String, NearCacheEntry> nearCache = this.nearCache;
+    if (nearCache != null) {
+      final SessionImpl copy = session.copy();
+      if (copy != null) {
+        nearCache.put(copy.id(), new NearCacheEntry(copy, System.currentTimeMillis()));
+      }
+    }
+  }
+
+  private String notificationAddress() {
+    return "vertx-web.sessions.notifications." + sessionMapName;
+  }
+
+  private synchronized void registerNotifications(Handler<Void> registered) {
+    if (notifications == null) {
+      notifications = vertx.eventBus().consumer(notificationAddress(), this::onNotification);
+      if (registered != null) {
+        notifications.completionHandler(res -> registered.handle(null));
+      }
+    } else if (registered != null) {
+      registered.handle(null);
+    }
+  }
+
+  /**
+   * Tell all the nodes that a session was written or deleted, a {@code null} id means all the sessions.
+   */
+  private void publish(String id, int version, long lastAccessed) {
+    vertx.eventBus().publish(notificationAddress(), new JsonObject()
+      .put("id", id)
+      .put("version", version)
+      .put("lastAccessed", lastAccessed));
+  }
+
+  private void onNotification(Message<JsonObject> message) {
+    final JsonObject stamp = message.body();
+    final String id = stamp.getString("id");
+    final BoundedConcurrentCache<String, NearCacheEntry> nearCache = this.nearCache;
+    if (id == null) {
+      if (nearCache != null) {
+        nearCache.clear();
+      }
+      return;
+    }
+    if (nearCache != null) {
+      final NearCacheEntry entry = nearCache.get(id);
+      // the writes of this node are already cached
+      if (entry != null && (entry.session.version() != stamp.getInteger("version")
+        || entry.session.lastAccessed() != stamp.getLong("lastAccessed"))) {
+        nearCache.remove(id);
+      }
+    }
+    if (stamp.getInteger("version") != -1) {
+      final Waiter waiter;
+      synchronized (waiters) {
+        waiter = waiters.remove(id);
+      }
+      if (waiter != null) {
+        vertx.cancelTimer(waiter.timerId);
+        get(id, waiter::complete);
+      }
+    }
+  }
+
   @Override
   public void clear(Handler<AsyncResult<Void>> resultHandler) {
     getMap(res -> {
       if (res.succeeded()) {
         res.result().clear(res2 -> {
           if (res2.succeeded()) {
+            if (nearCache != null) {
+              nearCache.clear();
+              publish(null, -1, -1);
+            }
             resultHandler.handle(Future.succeededFuture());
           } else {
             resultHandler.handle(Future.failedFuture(res2.cause()));
@@ -177,6 +433,13 @@ public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
   public void close() {
     // stop seeding the PRNG
     random.close();
+    setNearCache(0, 1);
+    synchronized (this) {
+      if (notifications != null) {
+        notifications.unregister();
+        notifications = null;
+      }
+    }
   }
 
   private void getMap(Handler<AsyncResult<AsyncMap<String, Session>>> resultHandler) {
@@ -194,4 +457,39 @@ public class ClusteredSessionStoreImpl implements ClusteredSessionStore {
     }
   }
 
+  private final class Waiter {
+    final String id;
+    // guarded by the waiters map until the waiter is removed from it
+    final List<Handler<AsyncResult<Session>>> handlers = new ArrayList<>(1);
+    volatile long timerId = -1;
+
+    Waiter(String id) {
+      this.id = id;
+    }
+
+    void complete(AsyncResult<Session> res) {
+      for (int i = 0; i < handlers.size(); i++) {
+        AsyncResult<Session> result = res;
+        if (i > 0 && res.succeeded() && res.result() != null) {
+          // the requests must not share the session
+          SessionImpl copy = ((SessionImpl) res.result()).copy();
+          if (copy != null) {
+            copy.setPRNG(random);
+            result = Future.succeededFuture(copy);
+          }
+        }
+        handlers.get(i).handle(result);
+      }
+    }
+  }
+
+  private static final class NearCacheEntry {
+    final SessionImpl session;
+    final long createTime;
+
+    NearCacheEntry(SessionImpl session, long createTime) {
+      this.session = session;
+      this.createTime = createTime;
+    }
+  }
 }
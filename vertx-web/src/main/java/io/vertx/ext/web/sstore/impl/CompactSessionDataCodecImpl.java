@@ -0,0 +1,441 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore.impl;
+
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+import io.vertx.ext.web.impl.Utils;
+import io.vertx.ext.web.sstore.CompactSessionDataCodec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * This class is thread-safe
+ */
+public class CompactSessionDataCodecImpl implements CompactSessionDataCodec {
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte LONG = 3;
+  private static final byte INT = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte FLOAT = 8;
+  private static final byte CHAR = 9;
+  private static final byte STRING = 10;
+  private static final byte BUFFER = 11;
+  private static final byte BYTES = 12;
+  private static final byte JSON_OBJECT = 13;
+  private static final byte JSON_ARRAY = 14;
+  private static final byte INSTANT = 15;
+  private static final byte REGISTERED = 16;
+  private static final byte SERIALIZABLE = 17;
+  private static final byte CLUSTER_SERIALIZABLE = 18;
+
+  private final Map<Class<?>, Registration<?>> byType = new ConcurrentHashMap<>();
+  private final Map<String, Registration<?>> byName = new ConcurrentHashMap<>();
+  private volatile int maxSize = Integer.MAX_VALUE;
+
+  // metrics
+  private final LongAdder encodedCount = new LongAdder();
+  private final LongAdder encodedBytes = new LongAdder();
+  private final LongAccumulator maxEncodedSize = new LongAccumulator(Math::max, 0);
+
+  @Override
+  public <T> CompactSessionDataCodec register(Class<T> type, Function<T, Buffer> encoder, Function<Buffer, T> decoder) {
+    Registration<T> registration = new Registration<>(type.getName(), encoder, decoder);
+    byName.put(registration.name, registration);
+    byType.put(type, registration);
+    return this;
+  }
+
+  @Override
+  public CompactSessionDataCodec setMaxSize(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be >= 1");
+    }
+    this.maxSize = maxSize;
+    return this;
+  }
+
+  @Override
+  public long encodedCount() {
+    return encodedCount.sum();
+  }
+
+  @Override
+  public long encodedBytes() {
+    return encodedBytes.sum();
+  }
+
+  @Override
+  public long maxEncodedSize() {
+    return maxEncodedSize.get();
+  }
+
+  @Override
+  public void encode(Map<String, Object> data, Buffer buffer) {
+    final int start = buffer.length();
+    final Encoder encoder = new Encoder(buffer);
+    if (data == null) {
+      encoder.varInt(0);
+    } else {
+      // the size is not reliable for concurrent maps
+      final List<Map.Entry<String, Object>> entries = new ArrayList<>(data.entrySet());
+      encoder.varInt(entries.size());
+      for (Map.Entry<String, Object> entry : entries) {
+        encoder.key(entry.getKey());
+        encoder.value(entry.getValue(), false);
+      }
+    }
+    final int size = buffer.length() - start;
+    if (size > maxSize) {
+      throw new IllegalStateException("Session data is too large: " + size + " bytes, max " + maxSize);
+    }
+    encodedCount.increment();
+    encodedBytes.add(size);
+    maxEncodedSize.accumulate(size);
+  }
+
+  @Override
+  public int decode(Buffer buffer, int pos, Map<String, Object> data) {
+    final Decoder decoder = new Decoder(buffer, pos);
+    final int entries = decoder.varInt();
+    for (int i = 0; i < entries; i++) {
+      final String key = decoder.key();
+      final Object value = decoder.value();
+      // maps used for session data do not accept nulls
+      if (value != null) {
+        data.put(key, value);
+      }
+    }
+    return decoder.pos;
+  }
+
+  private final class Encoder {
+    private final Buffer buffer;
+    private final Map<String, Integer> keys = new HashMap<>();
+
+    Encoder(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    void varInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.appendByte((byte) value);
+    }
+
+    void varLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.appendByte((byte) value);
+    }
+
+    void zigZag(long value) {
+      varLong((value << 1) ^ (value >> 63));
+    }
+
+    void bytes(byte[] bytes) {
+      varInt(bytes.length);
+      buffer.appendBytes(bytes);
+    }
+
+    void string(String value) {
+      bytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void key(String key) {
+      final Integer index = keys.get(key);
+      if (index != null) {
+        varInt(index + 1);
+      } else {
+        // 0 introduces a new key
+        varInt(0);
+        string(key);
+        keys.put(key, keys.size());
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void value(Object val, boolean json) {
+      if (val == null) {
+        buffer.appendByte(NULL);
+      } else if (val instanceof String) {
+        buffer.appendByte(STRING);
+        string((String) val);
+      } else if (val instanceof Boolean) {
+        buffer.appendByte((Boolean) val ? TRUE : FALSE);
+      } else if (val instanceof Integer) {
+        buffer.appendByte(INT);
+        zigZag((Integer) val);
+      } else if (val instanceof Long) {
+        buffer.appendByte(LONG);
+        zigZag((Long) val);
+      } else if (val instanceof Double) {
+        buffer.appendByte(DOUBLE).appendDouble((Double) val);
+      } else if (val instanceof JsonObject) {
+        jsonObject(((JsonObject) val).getMap());
+      } else if (val instanceof JsonArray) {
+        jsonArray(((JsonArray) val).getList());
+      } else if (json && val instanceof Map) {
+        jsonObject((Map<String, Object>) val);
+      } else if (json && val instanceof List) {
+        jsonArray((List<Object>) val);
+      } else if (json && val instanceof CharSequence) {
+        buffer.appendByte(STRING);
+        string(val.toString());
+      } else if (val instanceof Short) {
+        buffer.appendByte(SHORT);
+        zigZag((Short) val);
+      } else if (val instanceof Byte) {
+        buffer.appendByte(BYTE).appendByte((Byte) val);
+      } else if (val instanceof Float) {
+        buffer.appendByte(FLOAT).appendFloat((Float) val);
+      } else if (val instanceof Character) {
+        buffer.appendByte(CHAR);
+        varInt((Character) val);
+      } else if (val instanceof Buffer) {
+        buffer.appendByte(BUFFER);
+        varInt(((Buffer) val).length());
+        buffer.appendBuffer((Buffer) val);
+      } else if (val instanceof byte[]) {
+        buffer.appendByte(BYTES);
+        bytes((byte[]) val);
+      } else if (val instanceof Instant) {
+        buffer.appendByte(INSTANT);
+        zigZag(((Instant) val).getEpochSecond());
+        varInt(((Instant) val).getNano());
+      } else {
+        final Registration<Object> registration = (Registration<Object>) byType.get(val.getClass());
+        if (registration != null) {
+          buffer.appendByte(REGISTERED);
+          key(registration.name);
+          final Buffer encoded = registration.encoder.apply(val);
+          varInt(encoded.length());
+          buffer.appendBuffer(encoded);
+        } else if (val instanceof ClusterSerializable) {
+          buffer.appendByte(CLUSTER_SERIALIZABLE);
+          key(val.getClass().getName());
+          ((ClusterSerializable) val).writeToBuffer(buffer);
+        } else if (val instanceof Serializable) {
+          buffer.appendByte(SERIALIZABLE);
+          bytes(serialize(val));
+        } else {
+          throw new IllegalStateException("Invalid type for data in session: " + val.getClass());
+        }
+      }
+    }
+
+    private void jsonObject(Map<String, Object> map) {
+      buffer.appendByte(JSON_OBJECT);
+      final List<Map.Entry<String, Object>> entries = new ArrayList<>(map.entrySet());
+      varInt(entries.size());
+      for (Map.Entry<String, Object> entry : entries) {
+        key(entry.getKey());
+        value(entry.getValue(), true);
+      }
+    }
+
+    private void jsonArray(List<Object> list) {
+      buffer.appendByte(JSON_ARRAY);
+      varInt(list.size());
+      for (Object item : list) {
+        value(item, true);
+      }
+    }
+  }
+
+  private final class Decoder {
+    private final Buffer buffer;
+    private final List<String> keys = new ArrayList<>();
+    int pos;
+
+    Decoder(Buffer buffer, int pos) {
+      this.buffer = buffer;
+      this.pos = pos;
+    }
+
+    int varInt() {
+      return (int) varLong();
+    }
+
+    long varLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.getByte(pos++);
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    long zigZag() {
+      final long value = varLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    byte[] bytes() {
+      final int len = varInt();
+      final byte[] bytes = buffer.getBytes(pos, pos + len);
+      pos += len;
+      return bytes;
+    }
+
+    String string() {
+      return new String(bytes(), StandardCharsets.UTF_8);
+    }
+
+    String key() {
+      final int index = varInt();
+      if (index == 0) {
+        final String key = string();
+        keys.add(key);
+        return key;
+      }
+      return keys.get(index - 1);
+    }
+
+    Object value() {
+      final byte type = buffer.getByte(pos++);
+      switch (type) {
+        case NULL:
+          return null;
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case LONG:
+          return zigZag();
+        case INT:
+          return (int) zigZag();
+        case SHORT:
+          return (short) zigZag();
+        case BYTE:
+          return buffer.getByte(pos++);
+        case DOUBLE:
+          final double d = buffer.getDouble(pos);
+          pos += 8;
+          return d;
+        case FLOAT:
+          final float f = buffer.getFloat(pos);
+          pos += 4;
+          return f;
+        case CHAR:
+          return (char) varInt();
+        case STRING:
+          return string();
+        case BUFFER:
+          return Buffer.buffer(bytes());
+        case BYTES:
+          return bytes();
+        case JSON_OBJECT:
+          final int fields = varInt();
+          final Map<String, Object> map = new LinkedHashMap<>(fields);
+          for (int i = 0; i < fields; i++) {
+            final String key = key();
+            map.put(key, value());
+          }
+          return new JsonObject(map);
+        case JSON_ARRAY:
+          final int items = varInt();
+          final List<Object> list = new ArrayList<>(items);
+          for (int i = 0; i < items; i++) {
+            list.add(value());
+          }
+          return new JsonArray(list);
+        case INSTANT:
+          final long seconds = zigZag();
+          return Instant.ofEpochSecond(seconds, varInt());
+        case REGISTERED:
+          final String name = key();
+          final Registration<?> registration = byName.get(name);
+          if (registration == null) {
+            throw new IllegalStateException("No encoding registered for type: " + name);
+          }
+          final int len = varInt();
+          final Buffer encoded = buffer.getBuffer(pos, pos + len);
+          pos += len;
+          return registration.decoder.apply(encoded);
+        case SERIALIZABLE:
+          return deserialize(bytes());
+        case CLUSTER_SERIALIZABLE:
+          try {
+            final Class<?> clazz = Utils.getClassLoader().loadClass(key());
+            final ClusterSerializable obj = (ClusterSerializable) clazz.newInstance();
+            pos = obj.readFromBuffer(pos, buffer);
+            return obj;
+          } catch (ReflectiveOperationException e) {
+            throw new VertxException(e);
+          }
+        default:
+          throw new IllegalStateException("Invalid serialized type: " + type);
+      }
+    }
+  }
+
+  private static byte[] serialize(Object val) {
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(baos));
+      oos.writeObject(val);
+      oos.flush();
+      return baos.toByteArray();
+    } catch (IOException e) {
+      throw new VertxException(e);
+    }
+  }
+
+  private static Object deserialize(byte[] bytes) {
+    try {
+      ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new ByteArrayInputStream(bytes)));
+      return ois.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new VertxException(e);
+    }
+  }
+
+  private static final class Registration<T> {
+    final String name;
+    final Function<T, Buffer> encoder;
+    final Function<Buffer, T> decoder;
+
+    Registration(String name, Function<T, Buffer> encoder, Function<Buffer, T> decoder) {
+      this.name = name;
+      this.encoder = encoder;
+      this.decoder = decoder;
+    }
+  }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.VertxException;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.auth.PRNG;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.CookieSessionStore;
+import io.vertx.ext.web.sstore.SessionDataCodec;
+import io.vertx.ext.web.sstore.SessionStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The cookie value is the base64url encoding of the key id (4 bytes), the IV (12 bytes) and the encrypted session
+ * followed by the GCM tag. The encrypted session starts with a flag telling if the serialized session is compressed.
+ * Sessions kept in the fallback store have their id prefixed by {@code ~} as the cookie value.
+ */
+public class CookieSessionStoreImpl implements CookieSessionStore, WaitableSessionStore, CookieValueSessionStore {
+
+  private static final String FALLBACK_PREFIX = "~";
+  private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int KEY_ID_LENGTH = 4;
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH = 128;
+  // the keys are derived once, when the store is created
+  private static final String KDF = "PBKDF2WithHmacSHA256";
+  private static final byte[] KDF_SALT = "vertx-web-cookie-session-store".getBytes(StandardCharsets.UTF_8);
+  private static final int KDF_ITERATIONS = 100000;
+  private static final int KEY_LENGTH = 256;
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+  // smaller sessions do not compress well
+  private static final int COMPRESSION_THRESHOLD = 128;
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final PRNG random;
+  private final Key[] keys;
+  private final SessionStore fallback;
+  private volatile int maxCookieSize = DEFAULT_MAX_COOKIE_SIZE;
+  private volatile SessionDataCodec dataCodec;
+
+  // metrics
+  private final LongAdder fallbacks = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public CookieSessionStoreImpl(Vertx vertx, List<String> secrets, SessionStore fallback) {
+    if (secrets == null || secrets.isEmpty()) {
+      throw new IllegalArgumentException("At least one secret is required");
+    }
+    this.random = new PRNG(vertx);
+    this.fallback = fallback;
+    this.keys = new Key[secrets.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Key(secrets.get(i));
+    }
+  }
+
+  @Override
+  public CookieSessionStore setMaxCookieSize(int maxCookieSize) {
+    if (maxCookieSize < 1) {
+      throw new IllegalArgumentException("maxCookieSize must be >= 1");
+    }
+    this.maxCookieSize = maxCookieSize;
+    return this;
+  }
+
+  @Override
+  public CookieSessionStore setDataCodec(SessionDataCodec codec) {
+    this.dataCodec = codec;
+    return this;
+  }
+
+  /**
+   * @return the number of sessions which were put in the fallback store as they were too large for a cookie
+   */
+  public long fallbackCount() {
+    return fallbacks.sum();
+  }
+
+  /**
+   * @return the number of cookies which could not be decrypted, e.g. tampered with or encrypted with a removed secret
+   */
+  public long rejectedCount() {
+    return rejected.sum();
+  }
+
+  @Override
+  public long retryTimeout() {
+    return fallback == null ? 0 : fallback.retryTimeout();
+  }
+
+  @Override
+  public Session createSession(long timeout) {
+    return new CookieSession(random, timeout, DEFAULT_SESSIONID_LENGTH);
+  }
+
+  @Override
+  public Session createSession(long timeout, int length) {
+    return new CookieSession(random, timeout, length);
+  }
+
+  @Override
+  public void get(String cookieValue, Handler<AsyncResult<Session>> resultHandler) {
+    if (cookieValue.startsWith(FALLBACK_PREFIX)) {
+      if (fallback != null) {
+        fallback.get(cookieValue.substring(FALLBACK_PREFIX.length()), resultHandler);
+      } else {
+        resultHandler.handle(Future.succeededFuture());
+      }
+      return;
+    }
+    resultHandler.handle(Future.succeededFuture(decode(cookieValue)));
+  }
+
+  @Override
+  public void waitFor(String cookieValue, long timeout, Handler<AsyncResult<Session>> resultHandler) {
+    if (cookieValue.startsWith(FALLBACK_PREFIX) && fallback != null) {
+      WaitableSessionStore.waitFor(fallback, cookieValue.substring(FALLBACK_PREFIX.length()), timeout, resultHandler);
+    } else {
+      // a session in a cookie is either there or not
+      get(cookieValue, resultHandler);
+    }
+  }
+
+  @Override
+  public void delete(String id, Handler<AsyncResult<Void>> resultHandler) {
+    // only the sessions in the fallback store are known to the server
+    if (fallback != null) {
+      fallback.delete(id, resultHandler);
+    } else {
+      resultHandler.handle(Future.succeededFuture());
+    }
+  }
+
+  @Override
+  public void put(Session session, Handler<AsyncResult<Void>> resultHandler) {
+    final String value;
+    try {
+      value = cookieValue(session);
+    } catch (RuntimeException e) {
+      resultHandler.handle(Future.failedFuture(e));
+      return;
+    }
+    if (value == null) {
+      resultHandler.handle(Future.failedFuture("Session is too large for a cookie"));
+    } else if (value.startsWith(FALLBACK_PREFIX)) {
+      fallbacks.increment();
+      fallback.put(session, resultHandler);
+    } else {
+      // the session is sent to the client in the cookie
+      resultHandler.handle(Future.succeededFuture());
+    }
+  }
+
+  @Override
+  public String cookieValue(Session session) {
+    // the value is computed once for a request, by the first of put and cookieValue, the sessions read from the
+    // fallback store are encoded by both
+    final CookieSession cached = session instanceof CookieSession ? (CookieSession) session : null;
+    if (cached != null && !cached.isDirty() && cached.valueAccessed == cached.lastAccessed()) {
+      return cached.value;
+    }
+    String value = encode((SessionImpl) session);
+    if (value.length() > maxCookieSize) {
+      value = fallback != null ? FALLBACK_PREFIX + session.id() : null;
+    }
+    if (cached != null) {
+      cached.value = value;
+      cached.valueAccessed = cached.lastAccessed();
+    }
+    return value;
+  }
+
+  @Override
+  public void clear(Handler<AsyncResult<Void>> resultHandler) {
+    if (fallback != null) {
+      fallback.clear(resultHandler);
+    } else {
+      resultHandler.handle(Future.succeededFuture());
+    }
+  }
+
+  @Override
+  public void size(Handler<AsyncResult<Integer>> resultHandler) {
+    // the sessions in cookies are not known to the server
+    if (fallback != null) {
+      fallback.size(resultHandler);
+    } else {
+      resultHandler.handle(Future.succeededFuture(0));
+    }
+  }
+
+  @Override
+  public void close() {
+    // stop seeding the PRNG
+    random.close();
+  }
+
+  private String encode(SessionImpl session) {
+    session.setDataCodec(dataCodec);
+    session.incrementVersion();
+    final Buffer buffer = Buffer.buffer();
+    session.writeToBuffer(buffer);
+    final byte[] serialized = buffer.getBytes();
+
+    byte flag = RAW;
+    byte[] payload = serialized;
+    if (serialized.length > COMPRESSION_THRESHOLD) {
+      final byte[] deflated = deflate(serialized);
+      if (deflated.length < serialized.length) {
+        flag = DEFLATED;
+        payload = deflated;
+      }
+    }
+
+    final Key key = keys[0];
+    final byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+    try {
+      final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+      cipher.init(Cipher.ENCRYPT_MODE, key.spec, new GCMParameterSpec(TAG_LENGTH, iv));
+      cipher.updateAAD(key.id);
+      final byte[] plain = new byte[payload.length + 1];
+      plain[0] = flag;
+      System.arraycopy(payload, 0, plain, 1, payload.length);
+      final byte[] encrypted = cipher.doFinal(plain);
+      final byte[] out = new byte[KEY_ID_LENGTH + IV_LENGTH + encrypted.length];
+      System.arraycopy(key.id, 0, out, 0, KEY_ID_LENGTH);
+      System.arraycopy(iv, 0, out, KEY_ID_LENGTH, IV_LENGTH);
+      System.arraycopy(encrypted, 0, out, KEY_ID_LENGTH + IV_LENGTH, encrypted.length);
+      return ENCODER.encodeToString(out);
+    } catch (GeneralSecurityException e) {
+      throw new VertxException(e);
+    }
+  }
+
+  private SessionImpl decode(String cookieValue) {
+    final byte[] in;
+    try {
+      in = DECODER.decode(cookieValue);
+    } catch (IllegalArgumentException e) {
+      rejected.increment();
+      return null;
+    }
+    if (in.length <= KEY_ID_LENGTH + IV_LENGTH + TAG_LENGTH / 8) {
+      rejected.increment();
+      return null;
+    }
+
+    final ByteBuffer keyId = ByteBuffer.wrap(in, 0, KEY_ID_LENGTH);
+    for (Key key : keys) {
+      if (!ByteBuffer.wrap(key.id).equals(keyId)) {
+        continue;
+      }
+      final byte[] plain;
+      try {
+        final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key.spec, new GCMParameterSpec(TAG_LENGTH, in, KEY_ID_LENGTH, IV_LENGTH));
+        cipher.updateAAD(key.id);
+        plain = cipher.doFinal(in, KEY_ID_LENGTH + IV_LENGTH, in.length - KEY_ID_LENGTH - IV_LENGTH);
+      } catch (GeneralSecurityException e) {
+        // try the next key, the key ids are not guaranteed to be unique
+        continue;
+      }
+
+      final byte[] serialized;
+      try {
+        serialized = plain[0] == DEFLATED ? inflate(plain, 1) : Arrays.copyOfRange(plain, 1, plain.length);
+      } catch (DataFormatException e) {
+        break;
+      }
+      final SessionImpl session = new CookieSession(random);
+      session.setDataCodec(dataCodec);
+      session.readFromBuffer(0, Buffer.buffer(serialized));
+      if (System.currentTimeMillis() - session.lastAccessed() > session.timeout()) {
+        // expired
+        return null;
+      }
+      return session;
+    }
+    rejected.increment();
+    return null;
+  }
+
+  private static byte[] deflate(byte[] data) {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+      final byte[] chunk = new byte[1024];
+      while (!deflater.finished()) {
+        out.write(chunk, 0, deflater.deflate(chunk));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] data, int offset) throws DataFormatException {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data, offset, data.length - offset);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+      final byte[] chunk = new byte[1024];
+      while (!inflater.finished()) {
+        final int len = inflater.inflate(chunk);
+        if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("Truncated data");
+        }
+        out.write(chunk, 0, len);
+      }
+      return out.toByteArray();
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static final class CookieSession extends SessionImpl {
+    // the value of the cookie holding this session and the last accessed time it was computed for
+    String value;
+    long valueAccessed = -1;
+
+    CookieSession(PRNG random) {
+      super(random);
+    }
+
+    CookieSession(PRNG random, long timeout, int length) {
+      super(random, timeout, length);
+    }
+  }
+
+  private static final class Key {
+    final SecretKeySpec spec;
+    final byte[] id;
+
+    Key(String secret) {
+      try {
+        final PBEKeySpec keySpec = new PBEKeySpec(secret.toCharArray(), KDF_SALT, KDF_ITERATIONS, KEY_LENGTH);
+        final byte[] key;
+        try {
+          key = SecretKeyFactory.getInstance(KDF).generateSecret(keySpec).getEncoded();
+        } finally {
+          keySpec.clearPassword();
+        }
+        spec = new SecretKeySpec(key, "AES");
+        id = Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(key), KEY_ID_LENGTH);
+      } catch (GeneralSecurityException e) {
+        throw new VertxException(e);
+      }
+    }
+  }
+}
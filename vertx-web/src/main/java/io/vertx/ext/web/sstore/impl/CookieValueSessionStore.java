@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore.impl;
+
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+
+/**
+ * A store which keeps the sessions in the session cookie, so the value of the cookie is not the session id and changes
+ * every time the session is put.
+ */
+public interface CookieValueSessionStore extends SessionStore {
+
+  /**
+   * Get the value of the session cookie for a session.
+   *
+   * @param session  the session
+   * @return the value of the cookie, {@code null} if the session is too large for a cookie and cannot be stored
+   */
+  String cookieValue(Session session);
+
+  /**
+   * Get the value of the session cookie for a session kept in a store, the session id unless the store keeps the
+   * session in the cookie.
+   *
+   * @param store  the store
+   * @param session  the session
+   * @return the value of the cookie, {@code null} if the session cannot be stored
+   */
+  static String cookieValue(SessionStore store, Session session) {
+    if (store instanceof CookieValueSessionStore) {
+      return ((CookieValueSessionStore) store).cookieValue(session);
+    }
+    return session.id();
+  }
+}
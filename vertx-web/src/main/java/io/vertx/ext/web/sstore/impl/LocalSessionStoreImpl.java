@@ -25,21 +25,35 @@ import io.vertx.ext.auth.PRNG;
 import io.vertx.ext.web.Session;
 import io.vertx.ext.web.sstore.LocalSessionStore;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
  */
 public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
 
+  // name of the local map holding the expiry index of each session map
+  private static final String EXPIRY_INDEX_MAP_NAME = "vertx-web.sessions.expiry";
+  // the reaper yields the event loop after this time, and continues right after
+  private static final long REAPER_TIME_SLICE = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final int REAPER_BATCH_SIZE = 1024;
+
   private final LocalMap<String, Session> localMap;
+  private final LocalMap<String, SessionExpiryIndex> expiryIndexMap;
+  private final SessionExpiryIndex expiryIndex;
+  private final String sessionMapName;
   private final long reaperInterval;
   private final PRNG random;
 
   private long timerID = -1;
   private boolean closed;
 
+  // reaper metrics
+  private volatile long reapedCount;
+  private volatile long reaperPauseTime;
+  private volatile long maxReaperPauseTime;
+
   protected final Vertx vertx;
 
   public LocalSessionStoreImpl(Vertx vertx, String sessionMapName, long reaperInterval) {
@@ -47,10 +61,38 @@ public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
     this.random = new PRNG(vertx);
     this.vertx = vertx;
     this.reaperInterval = reaperInterval;
+    this.sessionMapName = sessionMapName;
     localMap = vertx.sharedData().getLocalMap(sessionMapName);
+    expiryIndexMap = vertx.sharedData().getLocalMap(EXPIRY_INDEX_MAP_NAME);
+    expiryIndex = getExpiryIndex();
     setTimer();
   }
 
+  private SessionExpiryIndex getExpiryIndex() {
+    // the buckets are finer than the reaper interval, so sessions don't outlive their timeout by much more than
+    // one interval
+    final long granularity = Math.max(1, (reaperInterval > 0 ? reaperInterval : DEFAULT_REAPER_INTERVAL) / 8);
+    while (true) {
+      final SessionExpiryIndex existing = expiryIndexMap.get(sessionMapName);
+      if (existing != null) {
+        if (existing.retain()) {
+          return existing;
+        }
+        // released by the last store using it, which is removing it
+        expiryIndexMap.removeIfPresent(sessionMapName, existing);
+        continue;
+      }
+      final SessionExpiryIndex index = new SessionExpiryIndex(granularity);
+      if (expiryIndexMap.putIfAbsent(sessionMapName, index) == null) {
+        // the sessions stored before the index was created
+        for (Session session : localMap.values()) {
+          index.add(session.id(), session.lastAccessed() + session.timeout());
+        }
+        return index;
+      }
+    }
+  }
+
   @Override
   public Session createSession(long timeout) {
     return new SessionImpl(random, timeout, DEFAULT_SESSIONID_LENGTH);
@@ -74,6 +116,7 @@ public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
   @Override
   public void delete(String id, Handler<AsyncResult<Void>> resultHandler) {
     localMap.remove(id);
+    expiryIndex.remove(id);
     resultHandler.handle(Future.succeededFuture());
   }
 
@@ -82,6 +125,13 @@ public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
     final SessionImpl oldSession = (SessionImpl) localMap.get(session.id());
     final SessionImpl newSession = (SessionImpl) session;
 
+    if (oldSession == newSession && !newSession.isDirty()) {
+      // the stored session is this instance and nothing changed, its last accessed time is already up to date
+      expiryIndex.add(session.id(), session.lastAccessed() + session.timeout());
+      resultHandler.handle(Future.succeededFuture());
+      return;
+    }
+
     if (oldSession != null) {
       // there was already some stored data in this case we need to validate versions
       if (oldSession.version() != newSession.version()) {
@@ -92,12 +142,14 @@ public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
 
     newSession.incrementVersion();
     localMap.put(session.id(), session);
+    expiryIndex.add(session.id(), session.lastAccessed() + session.timeout());
     resultHandler.handle(Future.succeededFuture());
   }
 
   @Override
   public void clear(Handler<AsyncResult<Void>> resultHandler) {
     localMap.clear();
+    expiryIndex.clear();
     resultHandler.handle(Future.succeededFuture());
   }
 
@@ -108,7 +160,14 @@ public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
 
   @Override
   public synchronized void close() {
+    if (closed) {
+      return;
+    }
     localMap.close();
+    // the index is shared with the other stores using the same session map
+    if (expiryIndex.release()) {
+      expiryIndexMap.removeIfPresent(sessionMapName, expiryIndex);
+    }
     if (timerID != -1) {
       vertx.cancelTimer(timerID);
     }
@@ -119,21 +178,73 @@ public class LocalSessionStoreImpl implements LocalSessionStore, Handler<Long> {
 
   @Override
   public synchronized void handle(Long tid) {
-    long now = System.currentTimeMillis();
-    Set<String> toRemove = new HashSet<>();
-    for (Session session: localMap.values()) {
-      if (now - session.lastAccessed() > session.timeout()) {
-        toRemove.add(session.id());
+    final long start = System.nanoTime();
+    final long now = System.currentTimeMillis();
+    long reaped = 0;
+    boolean yielded = false;
+
+    // only the sessions which are due to expire are checked
+    List<String> ids;
+    while (!(ids = expiryIndex.pollExpired(now, REAPER_BATCH_SIZE)).isEmpty()) {
+      for (String id : ids) {
+        final Session session = localMap.get(id);
+        if (session == null) {
+          // deleted
+          continue;
+        }
+        if (now - session.lastAccessed() > session.timeout()) {
+          if (localMap.removeIfPresent(id, session)) {
+            reaped++;
+          }
+        } else {
+          // accessed since it was indexed
+          expiryIndex.add(id, session.lastAccessed() + session.timeout());
+        }
+      }
+      if (System.nanoTime() - start > REAPER_TIME_SLICE) {
+        yielded = true;
+        break;
       }
     }
-    for (String id: toRemove) {
-      localMap.remove(id);
+
+    final long pause = System.nanoTime() - start;
+    reapedCount += reaped;
+    reaperPauseTime += pause;
+    if (pause > maxReaperPauseTime) {
+      maxReaperPauseTime = pause;
     }
+
     if (!closed) {
-      setTimer();
+      if (yielded) {
+        // let other events run before reaping the remaining sessions
+        timerID = vertx.setTimer(1, this);
+      } else {
+        setTimer();
+      }
     }
   }
 
+  /**
+   * @return the number of expired sessions removed by the reaper of this store
+   */
+  public long reapedCount() {
+    return reapedCount;
+  }
+
+  /**
+   * @return the total time, in ns, the reaper of this store has run
+   */
+  public long reaperPauseTime() {
+    return reaperPauseTime;
+  }
+
+  /**
+   * @return the longest time, in ns, a single run of the reaper of this store took
+   */
+  public long maxReaperPauseTime() {
+    return maxReaperPauseTime;
+  }
+
   private void setTimer() {
     if (reaperInterval != 0) {
       timerID = vertx.setTimer(reaperInterval, this);
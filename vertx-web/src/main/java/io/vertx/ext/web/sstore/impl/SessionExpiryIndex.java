@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore.impl;
+
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.*;
+
+/**
+ * Index of session ids by expiration time, grouped in buckets of a fixed duration.
+ * <p>
+ * A session is indexed once with the expiration time it had when it was added. As the expiration time of a session
+ * only moves forward, the index can only be early: the reaper checks each session it gets from the index and adds
+ * the ones that were accessed in the meantime again. This way accessing a session never needs to update the index.
+ * <p>
+ * The index is shared by all the stores using the same session map, it is created with one user and each store
+ * {@link #retain() retains} it when it opens and {@link #release() releases} it when it closes. This class is
+ * thread-safe
+ */
+final class SessionExpiryIndex implements Shareable {
+
+  private final long granularity;
+  // the key is the end of the bucket, all the sessions in it expire before that time
+  private final TreeMap<Long, Set<String>> buckets = new TreeMap<>();
+  // the bucket of each indexed session
+  private final Map<String, Long> indexed = new HashMap<>();
+  // the number of stores using the index
+  private int users = 1;
+
+  SessionExpiryIndex(long granularity) {
+    if (granularity < 1) {
+      throw new IllegalArgumentException("granularity must be >= 1");
+    }
+    this.granularity = granularity;
+  }
+
+  /**
+   * Add a session to the index, unless it is already indexed.
+   *
+   * @param id the session id
+   * @param expiration the time when the session expires, in ms
+   */
+  synchronized void add(String id, long expiration) {
+    if (!indexed.containsKey(id)) {
+      final long bucket = (Math.floorDiv(expiration, granularity) + 1) * granularity;
+      indexed.put(id, bucket);
+      buckets.computeIfAbsent(bucket, k -> new HashSet<>()).add(id);
+    }
+  }
+
+  /**
+   * Remove a deleted session from the index.
+   *
+   * @param id the session id
+   */
+  synchronized void remove(String id) {
+    final Long bucket = indexed.remove(id);
+    if (bucket != null) {
+      final Set<String> ids = buckets.get(bucket);
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        buckets.remove(bucket);
+      }
+    }
+  }
+
+  /**
+   * Remove from the index the sessions that are due to expire.
+   *
+   * @param now the current time, in ms
+   * @param max the max number of sessions to return
+   * @return the ids of the sessions which might be expired, empty if there are none
+   */
+  synchronized List<String> pollExpired(long now, int max) {
+    List<String> expired = new ArrayList<>();
+    while (expired.size() < max) {
+      final Map.Entry<Long, Set<String>> first = buckets.firstEntry();
+      if (first == null || first.getKey() > now) {
+        break;
+      }
+      final Iterator<String> ids = first.getValue().iterator();
+      while (ids.hasNext() && expired.size() < max) {
+        final String id = ids.next();
+        ids.remove();
+        indexed.remove(id);
+        expired.add(id);
+      }
+      if (first.getValue().isEmpty()) {
+        buckets.remove(first.getKey());
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * Add a user of the index.
+   *
+   * @return false if the index was released by its last user and must not be used anymore
+   */
+  synchronized boolean retain() {
+    if (users == 0) {
+      return false;
+    }
+    users++;
+    return true;
+  }
+
+  /**
+   * Remove a user of the index.
+   *
+   * @return true if it was the last user
+   */
+  synchronized boolean release() {
+    return users > 0 && --users == 0;
+  }
+
+  synchronized int size() {
+    return indexed.size();
+  }
+
+  synchronized void clear() {
+    buckets.clear();
+    indexed.clear();
+  }
+}
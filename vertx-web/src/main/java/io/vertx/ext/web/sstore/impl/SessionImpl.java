@@ -23,10 +23,12 @@ import io.vertx.core.shareddata.impl.ClusterSerializable;
 import io.vertx.ext.auth.PRNG;
 import io.vertx.ext.web.Session;
 import io.vertx.ext.web.impl.Utils;
+import io.vertx.ext.web.sstore.SessionDataCodec;
 
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -37,6 +39,7 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   private static final Charset UTF8 = Charset.forName("UTF-8");
   private static final char[] HEX = "0123456789abcdef".toCharArray();
 
+  // types of the data written by previous versions
   private static final byte TYPE_LONG = 1;
   private static final byte TYPE_INT = 2;
   private static final byte TYPE_SHORT = 3;
@@ -51,11 +54,20 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   private static final byte TYPE_SERIALIZABLE = 12;
   private static final byte TYPE_CLUSTER_SERIALIZABLE = 13;
 
+  // marks the data encoded by a codec, the legacy format starts with the number of entries
+  private static final int CODEC_FORMAT = -1;
+  // decodes the data of the sessions read without the codec of a store
+  private static final SessionDataCodec DEFAULT_CODEC = new CompactSessionDataCodecImpl();
+
   private PRNG prng;
 
   private String id;
   private long timeout;
   private volatile Map<String, Object> data;
+  // the data written by a codec, decoded when first used as the store sets the codec after the session is read
+  private volatile Buffer encodedData;
+  // the codec of the data, null to write the legacy format
+  private SessionDataCodec codec;
   private long lastAccessed;
   private int version;
   // state management
@@ -63,8 +75,12 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   private boolean renewed;
   private String oldId;
   private int crc;
+  // true when the data might have changed since it was last read from or written to a store
+  private volatile boolean dirty;
   // cache
   private Buffer buffer;
+  // the last accessed time of the copy of this session held by a store, -1 if the session was never stored
+  private long storedLastAccessed = -1;
 
   /**
    * Important note: This constructor (even though not referenced anywhere) is required for serialization purposes. Do
@@ -82,12 +98,22 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     this.id = generateId(prng, length);
     this.timeout = timeout;
     this.lastAccessed = System.currentTimeMillis();
+    // a new session has never been stored
+    this.dirty = true;
   }
 
   void setPRNG(PRNG prng) {
     this.prng = prng;
   }
 
+  /**
+   * Set the codec of the data of this session, the data is written in the format of the previous versions when it
+   * is {@code null}.
+   */
+  void setDataCodec(SessionDataCodec codec) {
+    this.codec = codec;
+  }
+
   @Override
   public String id() {
     return id;
@@ -103,6 +129,9 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     // ids are stored in hex, so the original size is half of the hex encoded length
     id = generateId(prng, oldId.length() / 2);
     renewed = true;
+    dirty = true;
+    // there is no stored copy with the new id
+    storedLastAccessed = -1;
     return this;
   }
 
@@ -114,16 +143,21 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   @Override
   @SuppressWarnings("unchecked")
   public <T> T get(String key) {
-    if (data == null) {
+    if (decodedData() == null) {
       return null;
     }
     Object obj = getData().get(key);
+    if (obj != null && !isImmutable(obj)) {
+      // the value can be changed in place so assume it will be
+      dirty = true;
+    }
     return (T) obj;
   }
 
   @Override
   public Session put(String key, Object obj) {
     final Map<String, Object> data = getData();
+    dirty = true;
     // nulls are handled as remove actions
     if (obj == null) {
       data.remove(key);
@@ -136,15 +170,20 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   @Override
   @SuppressWarnings("unchecked")
   public <T> T remove(String key) {
-    if (data == null) {
+    if (decodedData() == null) {
       return null;
     }
     Object obj = getData().remove(key);
+    if (obj != null) {
+      dirty = true;
+    }
     return (T) obj;
   }
 
   @Override
   public Map<String, Object> data() {
+    // the map can be modified by the caller
+    dirty = true;
     return getData();
   }
 
@@ -162,7 +201,9 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   public void destroy() {
     synchronized (this) {
       destroyed = true;
+      encodedData = null;
       data = null;
+      dirty = true;
     }
   }
 
@@ -185,7 +226,21 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     return version;
   }
 
+  /**
+   * @return true if the data of this session might have changed since it was last read from or written to a store.
+   * Values that are not immutable are assumed to be changed in place once they are read.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
   public void incrementVersion() {
+    if (!dirty && buffer != null) {
+      // nothing changed, the serialized data is still valid
+      return;
+    }
+    // clear the flag first so changes made while serializing are not lost
+    dirty = false;
     buffer = writeDataToBuffer();
     int crc = crc16(buffer, 0, buffer.length());
     if (this.crc != crc) {
@@ -195,6 +250,69 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     this.crc = crc;
   }
 
+  /**
+   * @return whether this session was read from or written to a store
+   */
+  public boolean isStored() {
+    return storedLastAccessed != -1;
+  }
+
+  /**
+   * Returns the state of this session as it was last read from or written to a store, sharing its serialized data.
+   *
+   * @return the stored copy or {@code null} if this session was never read from or written to a store
+   */
+  private SessionImpl storedCopy() {
+    if (storedLastAccessed == -1 || buffer == null) {
+      return null;
+    }
+    SessionImpl copy = new SessionImpl(prng);
+    copy.id = id;
+    copy.timeout = timeout;
+    copy.lastAccessed = storedLastAccessed;
+    copy.version = version;
+    copy.crc = crc;
+    copy.buffer = buffer;
+    copy.codec = codec;
+    copy.storedLastAccessed = storedLastAccessed;
+    return copy;
+  }
+
+  /**
+   * Returns a copy of the state of this session as it was last read from or written to a store, which shares no
+   * mutable state with this session. When the data is unchanged and only holds immutable values it is copied as is,
+   * otherwise it is read again from the serialized data.
+   *
+   * @return the copy or {@code null} if this session was never read from or written to a store
+   */
+  public SessionImpl copy() {
+    final SessionImpl copy = storedCopy();
+    if (copy == null) {
+      return null;
+    }
+    // read before the data, which is set first when it is decoded
+    final Buffer encodedData = this.encodedData;
+    final Map<String, Object> data = this.data;
+    if (!dirty && encodedData != null) {
+      // not decoded yet
+      copy.encodedData = encodedData;
+    } else if (!dirty && (data == null || data.values().stream().allMatch(SessionImpl::isImmutable))) {
+      if (data != null && data.size() > 0) {
+        copy.data = new ConcurrentHashMap<>(data);
+      }
+    } else {
+      copy.readDataFromBuffer(0, buffer);
+    }
+    return copy;
+  }
+
+  /**
+   * Mark this session as written to a store, after {@link #incrementVersion()}.
+   */
+  public void markStored() {
+    storedLastAccessed = lastAccessed;
+  }
+
   @Override
   public void writeToBuffer(Buffer buff) {
     byte[] bytes = id.getBytes(UTF8);
@@ -203,7 +321,7 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     buff.appendLong(lastAccessed);
     buff.appendInt(version);
     // use cache
-    Buffer dataBuf = buffer != null ? buffer : writeDataToBuffer();
+    Buffer dataBuf = buffer != null && !dirty ? buffer : writeDataToBuffer();
     buff.appendBuffer(dataBuf);
   }
 
@@ -225,11 +343,30 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     int end = pos;
     // calculate the checksum
     crc = crc16(buffer, start, end);
+    // keep the serialized data so it does not need to be serialized again if it does not change
+    this.buffer = buffer.getBuffer(start, end);
+    dirty = false;
+    storedLastAccessed = lastAccessed;
     return pos;
   }
 
+  private Map<String, Object> decodedData() {
+    if (encodedData != null) {
+      synchronized (this) {
+        final Buffer encoded = encodedData;
+        if (encoded != null) {
+          final Map<String, Object> decoded = new ConcurrentHashMap<>();
+          (codec != null ? codec : DEFAULT_CODEC).decode(encoded, 0, decoded);
+          data = decoded.isEmpty() ? null : decoded;
+          encodedData = null;
+        }
+      }
+    }
+    return data;
+  }
+
   private Map<String, Object> getData() {
-    if (data == null) {
+    if (decodedData() == null) {
       synchronized (this) {
         // double check since there could already been someone in the lock
         if (data == null) {
@@ -246,6 +383,20 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   }
 
   private Buffer writeDataToBuffer() {
+    final Map<String, Object> data = decodedData();
+    if (codec == null) {
+      // the nodes running previous versions can read it
+      return writeLegacyDataToBuffer(data);
+    }
+    Buffer buffer = Buffer.buffer();
+    buffer.appendInt(CODEC_FORMAT).appendInt(0);
+    codec.encode(data, buffer);
+    // the length lets the data be decoded later
+    buffer.setInt(4, buffer.length() - 8);
+    return buffer;
+  }
+
+  private Buffer writeLegacyDataToBuffer(Map<String, Object> data) {
     try {
       Buffer buffer = Buffer.buffer();
       if (data == null || data.size() == 0) {
@@ -309,6 +460,17 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
   }
 
   private int readDataFromBuffer(int pos, Buffer buffer) {
+    if (buffer.getInt(pos) == CODEC_FORMAT) {
+      final int len = buffer.getInt(pos + 4);
+      pos += 8;
+      encodedData = buffer.getBuffer(pos, pos + len);
+      return pos + len;
+    }
+    // written by a previous version
+    return readLegacyDataFromBuffer(pos, buffer);
+  }
+
+  private int readLegacyDataFromBuffer(int pos, Buffer buffer) {
     try {
       int entries = buffer.getInt(pos);
       pos += 4;
@@ -409,6 +571,11 @@ public class SessionImpl implements Session, ClusterSerializable, Shareable {
     }
   }
 
+  private static boolean isImmutable(Object obj) {
+    return obj instanceof String || obj instanceof Number && obj.getClass().getName().startsWith("java.lang.")
+      || obj instanceof Boolean || obj instanceof Character;
+  }
+
   private static String generateId(PRNG rng, int length) {
     final byte[] bytes = new byte[length];
     rng.nextBytes(bytes);
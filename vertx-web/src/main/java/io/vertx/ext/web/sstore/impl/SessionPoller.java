@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+
+/**
+ * Waits for a session by polling a store which is not notified of the writes. The delay between the reads starts
+ * small, as sessions usually propagate quickly, and doubles up to a max so a slow propagation does not turn into a
+ * storm of timers and reads.
+ */
+final class SessionPoller {
+
+  private static final long MIN_DELAY = 5;
+  private static final long MAX_DELAY = 100;
+
+  private SessionPoller() {
+  }
+
+  /**
+   * Poll a store until the session is found or the deadline is reached.
+   *
+   * @param store the store
+   * @param id the session id
+   * @param deadline the time to stop polling, in ms
+   * @param resultHandler will be called with the session, {@code null} if it was not found, or a failure
+   */
+  static void poll(SessionStore store, String id, long deadline, Handler<AsyncResult<Session>> resultHandler) {
+    poll(store, id, deadline, MIN_DELAY, resultHandler);
+  }
+
+  private static void poll(SessionStore store, String id, long deadline, long delay, Handler<AsyncResult<Session>> resultHandler) {
+    store.get(id, res -> {
+      if (res.succeeded() && res.result() == null) {
+        final long remaining = deadline - System.currentTimeMillis();
+        final Context context = Vertx.currentContext();
+        // timers need a context
+        if (remaining > 0 && context != null) {
+          context.owner().setTimer(Math.min(delay, remaining),
+            v -> poll(store, id, deadline, Math.min(delay * 2, MAX_DELAY), resultHandler));
+          return;
+        }
+      }
+      resultHandler.handle(res);
+    });
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+
+/**
+ * A store which can wait for a session to be stored without polling, e.g. as it is notified of the writes. The
+ * session handler polls the other stores, see {@link SessionPoller}.
+ */
+public interface WaitableSessionStore extends SessionStore {
+
+  /**
+   * Get the session with the specified ID, waiting for it to be stored if it is not found. This is necessary for
+   * clustered sessions as it can take some time for a new session to propagate across the cluster, so if the next
+   * request for the session comes in quickly at a different node it might not be available yet.
+   *
+   * @param id  the unique ID of the session
+   * @param timeout  the max time to wait for the session, in ms
+   * @param resultHandler  will be called with a result holding the session, {@code null} if it was not stored before
+   *                       the timeout, or a failure
+   */
+  void waitFor(String id, long timeout, Handler<AsyncResult<Session>> resultHandler);
+
+  /**
+   * Get the session from a store, waiting for it if the store can, polling it otherwise.
+   *
+   * @param store  the store
+   * @param id  the unique ID of the session
+   * @param timeout  the max time to wait for the session, in ms
+   * @param resultHandler  will be called with a result holding the session, {@code null} if it was not stored before
+   *                       the timeout, or a failure
+   */
+  static void waitFor(SessionStore store, String id, long timeout, Handler<AsyncResult<Session>> resultHandler) {
+    if (store instanceof WaitableSessionStore) {
+      ((WaitableSessionStore) store).waitFor(id, timeout, resultHandler);
+    } else {
+      SessionPoller.poll(store, id, System.currentTimeMillis() + timeout, resultHandler);
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.vertx.ext.web.templ.impl;
 
+import io.vertx.ext.web.impl.BoundedConcurrentCache;
 import io.vertx.ext.web.impl.ConcurrentLRUCache;
 import io.vertx.ext.web.templ.TemplateEngine;
 
@@ -30,6 +31,11 @@ public abstract class CachingTemplateEngine<T> implements TemplateEngine {
   // should not be static, so at at creation time the value is evaluated
   private final boolean enableCache = !Boolean.getBoolean(DISABLE_TEMPL_CACHING_PROP_NAME);
 
+  protected final BoundedConcurrentCache<String, T> templateCache;
+  /**
+   * @deprecated the templates are cached in {@link #templateCache}, this field is always {@code null}
+   */
+  @Deprecated
   protected final ConcurrentLRUCache<String, T> cache;
   protected String extension;
 
@@ -39,7 +45,8 @@ public abstract class CachingTemplateEngine<T> implements TemplateEngine {
       throw new IllegalArgumentException("maxCacheSize must be >= 1");
     }
     doSetExtension(ext);
-    this.cache = new ConcurrentLRUCache<>(maxCacheSize);
+    this.templateCache = new BoundedConcurrentCache<>(maxCacheSize);
+    this.cache = null;
   }
 
   @Override
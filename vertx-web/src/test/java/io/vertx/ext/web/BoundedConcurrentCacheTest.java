@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web;
+
+import io.vertx.ext.web.impl.BoundedConcurrentCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BoundedConcurrentCacheTest {
+
+  private final int maxSize = 10;
+
+  @Test
+  public void testPutGet() {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(maxSize);
+    assertNull(cache.put("key", "value"));
+    assertEquals("value", cache.get("key"));
+    assertEquals("value", cache.put("key", "value2"));
+    assertEquals("value2", cache.get("key"));
+    assertNull(cache.get("other"));
+    assertEquals(1, cache.size());
+    assertEquals(2, cache.hitCount());
+    assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  public void testBounded() {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(maxSize);
+    for (int i = 0; i < 100; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    assertEquals(maxSize, cache.size());
+    assertEquals(maxSize, cache.weightedSize());
+    assertEquals(100 - maxSize, cache.evictionCount());
+  }
+
+  @Test
+  public void testFrequentlyUsedEntriesStayResident() {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(100);
+    for (int i = 0; i < 50; i++) {
+      cache.put("hot" + i, "value");
+    }
+    for (int j = 0; j < 5; j++) {
+      for (int i = 0; i < 50; i++) {
+        assertNotNull(cache.get("hot" + i));
+      }
+    }
+    // a scan of entries used only once
+    for (int i = 0; i < 1000; i++) {
+      cache.put("cold" + i, "value");
+    }
+    int resident = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cache.containsKey("hot" + i)) {
+        resident++;
+      }
+    }
+    assertTrue("only " + resident + " hot entries are resident", resident >= 40);
+    assertEquals(100, cache.size());
+  }
+
+  @Test
+  public void testRemove() {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(maxSize);
+    for (int i = 0; i < maxSize; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    for (int i = 0; i < maxSize; i++) {
+      assertEquals("value" + i, cache.remove("key" + i));
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.weightedSize());
+    assertEquals(0, cache.evictionCount());
+  }
+
+  @Test
+  public void testWeighted() {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(100, (k, v) -> v.length(), 0, TimeUnit.SECONDS);
+    for (int i = 0; i < 50; i++) {
+      cache.put("key" + i, "0123456789");
+    }
+    assertTrue(cache.weightedSize() <= 100);
+    assertTrue(cache.size() <= 10);
+    // heavier than the whole cache
+    cache.put("big", new String(new char[200]));
+    assertFalse(cache.containsKey("big"));
+  }
+
+  @Test
+  public void testExpireAfterAccess() throws Exception {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(maxSize, null, 10, TimeUnit.MILLISECONDS);
+    cache.put("key", "value");
+    assertEquals("value", cache.get("key"));
+    Thread.sleep(50);
+    assertNull(cache.get("key"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testSetMaxSize() {
+    BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(maxSize);
+    for (int i = 0; i < maxSize; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    cache.setMaxSize(5);
+    assertEquals(5, cache.size());
+    cache.setMaxSize(maxSize + 10);
+    for (int i = 0; i < maxSize + 10; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    assertEquals(maxSize + 10, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCacheInvalidSize() {
+    new BoundedConcurrentCache<>(0);
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<>(100);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100000; i++) {
+          int key = random.nextInt(1000);
+          if (cache.get(key) == null) {
+            cache.put(key, key);
+          }
+          if (i % 100 == 0) {
+            cache.remove(random.nextInt(1000));
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(cache.size() <= 100);
+    assertEquals(cache.size(), cache.weightedSize());
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web;
+
+import io.vertx.core.http.HttpMethod;
+import org.junit.Test;
+
+/**
+ * Runs all the router tests with compiled dispatch enabled.
+ */
+public class CompiledDispatchRouterTest extends RouterTest {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    router.useCompiledDispatch(true);
+  }
+
+  @Test
+  public void testCompiledDispatchKeepsOrder() throws Exception {
+    router.route().handler(rc -> {
+      rc.put("trail", "a");
+      rc.next();
+    });
+    router.routeWithRegex("/fo+/.*").handler(rc -> {
+      rc.put("trail", rc.get("trail") + "b");
+      rc.next();
+    });
+    router.get("/foo/:id").handler(rc -> {
+      rc.put("trail", rc.get("trail") + "c" + rc.pathParam("id"));
+      rc.next();
+    });
+    router.post("/foo/:id").handler(rc -> rc.response().end("post"));
+    router.route("/foo*").handler(rc -> {
+      rc.put("trail", rc.get("trail") + "d");
+      rc.next();
+    });
+    router.route("/foo/bar").handler(rc -> rc.response().end(rc.get("trail") + "e"));
+    router.route("/fooz").handler(rc -> rc.response().end("fooz"));
+
+    testRequest(HttpMethod.GET, "/foo/bar", 200, "OK", "abcbarde");
+    testRequest(HttpMethod.GET, "/foo/bar/", 200, "OK", "abde");
+    testRequest(HttpMethod.GET, "/fooz", 200, "OK", "fooz");
+    testRequest(HttpMethod.POST, "/foo/bar", 200, "OK", "post");
+    testRequest(HttpMethod.GET, "/fo", 404, "Not Found");
+  }
+
+  @Test
+  public void testCompiledDispatchRebuildsOnChanges() throws Exception {
+    Route route = router.get("/foo").handler(rc -> rc.response().end("foo"));
+    testRequest(HttpMethod.GET, "/foo", 200, "OK", "foo");
+    route.disable();
+    testRequest(HttpMethod.GET, "/foo", 404, "Not Found");
+    route.enable();
+    testRequest(HttpMethod.GET, "/foo", 200, "OK", "foo");
+    router.get("/bar").handler(rc -> rc.response().end("bar"));
+    testRequest(HttpMethod.GET, "/bar", 200, "OK", "bar");
+    route.remove();
+    testRequest(HttpMethod.GET, "/foo", 404, "Not Found");
+  }
+
+  @Test
+  public void testCompiledDispatchSubRouter() throws Exception {
+    Router subRouter = Router.router(vertx).useCompiledDispatch(true);
+    subRouter.get("/").handler(rc -> rc.response().end("root"));
+    subRouter.get("/items/:id").handler(rc -> rc.response().end(rc.pathParam("id")));
+    router.mountSubRouter("/api", subRouter);
+
+    testRequest(HttpMethod.GET, "/api", 200, "OK", "root");
+    testRequest(HttpMethod.GET, "/api/", 200, "OK", "root");
+    testRequest(HttpMethod.GET, "/api/items/42", 200, "OK", "42");
+    testRequest(HttpMethod.GET, "/api/other", 404, "Not Found");
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web;
+
+import io.vertx.ext.web.impl.HttpDates;
+import io.vertx.ext.web.impl.Utils;
+import org.junit.Test;
+
+import java.text.DateFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpDatesTest {
+
+  @Test
+  public void testFormat() throws Exception {
+    assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDates.format(784111777000L));
+    DateFormat legacy = Utils.createRFC1123DateTimeFormatter();
+    for (long millis : new long[] {0, 784111777123L, 1500000000000L, System.currentTimeMillis()}) {
+      assertEquals(legacy.format(millis), HttpDates.format(millis));
+    }
+  }
+
+  @Test
+  public void testParse() throws Exception {
+    assertEquals(784111777000L, HttpDates.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+    assertEquals(784111777000L, HttpDates.parse("Sun, 6 Nov 1994 08:49:37 GMT"));
+    assertEquals(-1, HttpDates.parse("not a date"));
+    assertEquals(-1, HttpDates.parse(""));
+    assertEquals(-1, HttpDates.parse(null));
+  }
+
+  @Test
+  public void testCurrentDate() throws Exception {
+    long before = Utils.secondsFactor(System.currentTimeMillis());
+    long current = HttpDates.parse(HttpDates.currentDate());
+    long after = System.currentTimeMillis();
+    assertTrue(current >= before && current <= after);
+  }
+}
@@ -779,6 +779,32 @@ public class RouterTest extends WebTestBase {
     testRequest(HttpMethod.GET, "/first/" + firstParamValue + "/route", 200, secondParamValue);
   }
 
+  @Test
+  public void testQueryParamsDecodedOnceWithReroute() throws Exception {
+    List<MultiMap> decoded = new ArrayList<>();
+    router.route("/first").handler(rc -> {
+      decoded.add(rc.queryParams());
+      assertEquals(Collections.singletonList("b c"), rc.queryParam("a"));
+      rc.next();
+    });
+    router.route("/first").handler(rc -> {
+      decoded.add(rc.queryParams());
+      rc.reroute(HttpMethod.GET, "/second?ignored=true");
+    });
+    router.route("/second").handler(rc -> {
+      decoded.add(rc.queryParams());
+      // the uri was rewritten but the params are still the ones of the original request
+      assertEquals(Collections.singletonList("b c"), rc.queryParam("a"));
+      assertEquals(Arrays.asList("1", "2"), rc.queryParam("d"));
+      assertTrue(rc.queryParam("ignored").isEmpty());
+      // decoded once for the whole request
+      assertSame(decoded.get(0), decoded.get(1));
+      assertSame(decoded.get(0), decoded.get(2));
+      rc.response().setStatusMessage(rc.queryParam("a").get(0)).end();
+    });
+    testRequest(HttpMethod.GET, "/first?a=b%20c&d=1&d=2", 200, "b c");
+  }
+
   private void testPattern(String pathRoot, String expected) throws Exception {
     testRequest(HttpMethod.GET, pathRoot, 200, expected);
     testRequest(HttpMethod.GET, pathRoot + "/", 404, "Not Found");
@@ -1967,4 +1993,28 @@ public class RouterTest extends WebTestBase {
     });
     testRequest(HttpMethod.GET, "/path", 200, "OK", "handler1handler2handler3");
   }
+
+  @Test
+  public void testConcurrentRequestsKeepTheirHandlerPosition() throws Exception {
+    List<RoutingContext> waiting = new ArrayList<>();
+    router.get("/path").handler(routingContext -> {
+      waiting.add(routingContext);
+      if (waiting.size() == 2) {
+        // both requests are now positioned on the same route
+        waiting.forEach(RoutingContext::next);
+      }
+    }).handler(routingContext -> routingContext.response().end("handler2"));
+
+    waitFor(2);
+    for (int i = 0; i < 2; i++) {
+      client.getNow("/path", resp -> {
+        assertEquals(200, resp.statusCode());
+        resp.bodyHandler(buff -> {
+          assertEquals("handler2", buff.toString());
+          complete();
+        });
+      });
+    }
+    await();
+  }
 }
@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.net.URLEncoder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -34,6 +35,15 @@ public class UtilsTest {
     assertEquals("/path/with/no/leading/slash", Utils.normalizePath("path/with/no/leading/slash"));
   }
 
+  @Test
+  public void testAlreadyNormalizedPath() throws Exception {
+    String path = "/static/js/app.min.js";
+    assertSame(path, Utils.normalizePath(path));
+    assertSame(path, Utils.removeDots(path));
+    assertEquals("/.hidden/file", Utils.normalizePath("/.hidden/file"));
+    assertEquals("/a/b", Utils.normalizePath("/a/./b"));
+  }
+
   @Test
   public void testNullPath() throws Exception {
     assertEquals("/", Utils.normalizePath(null));
@@ -15,12 +15,17 @@
  */
 package io.vertx.ext.web.handler;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.http.WebSocketBase;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.AbstractUser;
 import io.vertx.ext.auth.AuthProvider;
 import io.vertx.ext.auth.shiro.ShiroAuth;
 import io.vertx.ext.auth.shiro.ShiroAuthRealmType;
@@ -34,6 +39,7 @@ import io.vertx.ext.bridge.PermittedOptions;
 import io.vertx.test.core.TestUtils;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -1040,6 +1046,50 @@ public class EventbusBridgeTest extends WebTestBase {
     testError(new JsonObject().put("type", "send").put("address", addr).put("body", "foo"), "access_denied");
   }
 
+  @Test
+  public void testAuthorisationCache() throws Exception {
+    AtomicInteger lookups = new AtomicInteger();
+    sockJSHandler.bridge(defaultOptions.setAuthorisationCacheTimeout(60 * 1000)
+      .addInboundPermitted(new PermittedOptions().setAddress(addr).setRequiredAuthority("pick_nose")));
+    router.clear();
+    router.route("/eventbus/*").handler(rc -> {
+      rc.setUser(new AbstractUser() {
+        @Override
+        protected void doIsPermitted(String permission, Handler<AsyncResult<Boolean>> resultHandler) {
+          lookups.incrementAndGet();
+          resultHandler.handle(Future.succeededFuture(false));
+        }
+
+        @Override
+        public JsonObject principal() {
+          return new JsonObject().put("username", "tim");
+        }
+
+        @Override
+        public void setAuthProvider(AuthProvider authProvider) {
+        }
+      });
+      rc.next();
+    });
+    router.route("/eventbus/*").handler(sockJSHandler);
+    CountDownLatch latch = new CountDownLatch(3);
+    client.websocket(websocketURI, ws -> {
+      ws.handler(buff -> {
+        JsonObject received = new JsonObject(buff.toString());
+        assertEquals("err", received.getString("type"));
+        assertEquals("access_denied", received.getString("body"));
+        latch.countDown();
+      });
+      JsonObject msg = new JsonObject().put("type", "send").put("address", addr).put("body", "foo");
+      for (int i = 0; i < 3; i++) {
+        ws.writeFrame(io.vertx.core.http.WebSocketFrame.textFrame(msg.encode(), true));
+      }
+    });
+    awaitLatch(latch);
+    // the denial is only looked up once
+    assertEquals(1, lookups.get());
+  }
+
   private void addLoginHandler(Router router, AuthProvider authProvider) {
     router.route("/eventbus/*").handler(rc -> {
       // we need to be logged in
@@ -1229,6 +1279,103 @@ public class EventbusBridgeTest extends WebTestBase {
     awaitLatch(latch);
   }
 
+  @Test
+  public void testSharedConsumers() throws Exception {
+    sockJSHandler.bridge(new BridgeOptions(allAccessOptions).setSharedConsumers(true));
+    CountDownLatch latch = new CountDownLatch(3);
+    JsonObject register = new JsonObject().put("type", "register").put("address", addr);
+    client.websocket(websocketURI, ws1 -> {
+      ws1.writeFrame(io.vertx.core.http.WebSocketFrame.textFrame(register.encode(), true));
+      client.websocket(websocketURI, ws2 -> {
+        ws2.writeFrame(io.vertx.core.http.WebSocketFrame.textFrame(register.encode(), true));
+        AtomicInteger received = new AtomicInteger();
+        ws1.handler(buff -> {
+          JsonObject msg = new JsonObject(buff.toString());
+          assertEquals("rec", msg.getString("type"));
+          assertEquals("foo", msg.getValue("body"));
+          latch.countDown();
+          // Now unregister the first socket, only the second one gets the next message
+          JsonObject unregister = new JsonObject().put("type", "unregister").put("address", addr);
+          ws1.writeFrame(io.vertx.core.http.WebSocketFrame.textFrame(unregister.encode(), true));
+          vertx.setTimer(200, tid -> vertx.eventBus().publish(addr, "bar"));
+        });
+        ws2.handler(buff -> {
+          JsonObject msg = new JsonObject(buff.toString());
+          assertEquals("rec", msg.getString("type"));
+          assertEquals(received.getAndIncrement() == 0 ? "foo" : "bar", msg.getValue("body"));
+          latch.countDown();
+        });
+        // Wait a bit to allow the handlers to be setup on the server, then publish from the eventbus
+        vertx.setTimer(200, tid -> vertx.eventBus().publish(addr, "foo"));
+      });
+    });
+    awaitLatch(latch);
+  }
+
+  @Test
+  public void testBinaryWebSocket() throws Exception {
+    sockJSHandler.bridge(allAccessOptions);
+    CountDownLatch latch = new CountDownLatch(1);
+    byte[] address = addr.getBytes(StandardCharsets.UTF_8);
+    byte[] body = {0, 1, 2, (byte) 0xFF};
+    // register and publish batched in a single frame
+    Buffer frame = Buffer.buffer()
+      .appendInt(5 + address.length).appendByte((byte) 2).appendByte((byte) 0)
+      .appendShort((short) address.length).appendBytes(address).appendByte((byte) 0)
+      .appendInt(9 + address.length + body.length).appendByte((byte) 1).appendByte((byte) 0)
+      .appendShort((short) address.length).appendBytes(address).appendByte((byte) 2)
+      .appendInt(body.length).appendBytes(body);
+    client.websocket(websocketURI + "/binary", ws -> {
+      ws.handler(buff -> {
+        assertEquals(buff.length() - 4, buff.getInt(0));
+        // rec
+        assertEquals(5, buff.getByte(4));
+        assertEquals(0, buff.getByte(5));
+        assertEquals(address.length, buff.getShort(6));
+        assertEquals(addr, buff.getString(8, 8 + address.length));
+        int pos = 8 + address.length;
+        assertEquals(2, buff.getByte(pos));
+        assertEquals(body.length, buff.getInt(pos + 1));
+        assertEquals(Buffer.buffer(body), buff.getBuffer(pos + 5, pos + 5 + body.length));
+        latch.countDown();
+      });
+      ws.writeFrame(io.vertx.core.http.WebSocketFrame.binaryFrame(frame, true));
+    });
+    awaitLatch(latch);
+  }
+
+  @Test
+  public void testBinaryWebSocketEncodeError() throws Exception {
+    sockJSHandler.bridge(new BridgeOptions(allAccessOptions).setSharedConsumers(true));
+    CountDownLatch latch = new CountDownLatch(2);
+    byte[] address = addr.getBytes(StandardCharsets.UTF_8);
+    Buffer register = Buffer.buffer()
+      .appendInt(5 + address.length).appendByte((byte) 2).appendByte((byte) 0)
+      .appendShort((short) address.length).appendBytes(address).appendByte((byte) 0);
+    client.websocket(websocketURI + "/binary", binary -> {
+      binary.writeFrame(io.vertx.core.http.WebSocketFrame.binaryFrame(register, true));
+      client.websocket(websocketURI, json -> {
+        json.writeFrame(io.vertx.core.http.WebSocketFrame.textFrame(
+          new JsonObject().put("type", "register").put("address", addr).encode(), true));
+        binary.handler(buff -> {
+          // a header too long for a binary envelope, only this socket is told
+          assertEquals(6, buff.getByte(4));
+          assertTrue(buff.toString().contains("encode_error"));
+          latch.countDown();
+        });
+        json.handler(buff -> {
+          JsonObject msg = new JsonObject(buff.toString());
+          assertEquals("rec", msg.getString("type"));
+          assertEquals("foo", msg.getValue("body"));
+          latch.countDown();
+        });
+        vertx.setTimer(200, tid -> vertx.eventBus().publish(addr, "foo",
+          new DeliveryOptions().addHeader("big", TestUtils.randomAlphaString(70000))));
+      });
+    });
+    awaitLatch(latch);
+  }
+
   private void testReceive(Object body) throws Exception {
     testReceive("someaddress", body);
   }
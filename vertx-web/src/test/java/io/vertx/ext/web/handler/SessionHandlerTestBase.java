@@ -17,6 +17,7 @@
 package io.vertx.ext.web.handler;
 
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.sstore.LocalSessionStore;
 import io.vertx.ext.web.Session;
 import io.vertx.ext.web.sstore.SessionStore;
@@ -459,4 +460,45 @@ public abstract class SessionHandlerTestBase extends WebTestBase {
 
     await();
   }
+
+  @Test
+  public void testDirtyTracking() throws Exception {
+    SessionImpl session = (SessionImpl) store.createSession(10000);
+    // a new session was never stored
+    assertTrue(session.isDirty());
+    session.put("k", "v");
+    session.put("json", new JsonObject());
+
+    store.put(session, res -> {
+      assertTrue(res.succeeded());
+      assertFalse(session.isDirty());
+      store.get(session.id(), res1 -> {
+        SessionImpl session1 = (SessionImpl) res1.result();
+        assertFalse(session1.isDirty());
+        // reading immutable values does not change the session
+        assertEquals("v", session1.get("k"));
+        assertFalse(session1.isDirty());
+        // other values can be changed in place
+        JsonObject json = session1.get("json");
+        assertTrue(session1.isDirty());
+        json.put("changed", true);
+
+        store.put(session1, res2 -> {
+          assertTrue(res2.succeeded());
+          assertFalse(session1.isDirty());
+          store.get(session.id(), res3 -> {
+            SessionImpl session2 = (SessionImpl) res3.result();
+            assertEquals(2, session2.version());
+            assertEquals(true, session2.<JsonObject>get("json").getBoolean("changed"));
+            // the map can be modified by the caller
+            session2.data();
+            assertTrue(session2.isDirty());
+            testComplete();
+          });
+        });
+      });
+    });
+
+    await();
+  }
 }
@@ -21,9 +21,12 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.impl.Utils;
 import io.vertx.ext.web.WebTestBase;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.text.DateFormat;
 import java.util.Arrays;
 import java.util.Date;
@@ -41,6 +44,9 @@ public class StaticHandlerTest extends WebTestBase {
 
   protected StaticHandler stat;
 
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
   @Override
   public void setUp() throws Exception {
     super.setUp();
@@ -224,6 +230,60 @@ public class StaticHandlerTest extends WebTestBase {
     }, 200, "OK", "<html><body>Other page</body></html>");
   }
 
+  @Test
+  public void testETag() throws Exception {
+    AtomicReference<String> etagRef = new AtomicReference<>();
+    AtomicReference<String> lastModifiedRef = new AtomicReference<>();
+    testRequest(HttpMethod.GET, "/otherpage.html", null, res -> {
+      String etag = res.headers().get("etag");
+      assertNotNull(etag);
+      assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+      etagRef.set(etag);
+      lastModifiedRef.set(res.headers().get("last-modified"));
+    }, 200, "OK", "<html><body>Other page</body></html>");
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-none-match", etagRef.get()), res -> {
+      assertEquals(etagRef.get(), res.headers().get("etag"));
+    }, 304, "Not Modified", null);
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-none-match", "\"other\", W/" + etagRef.get()), null, 304, "Not Modified", null);
+    testRequest(HttpMethod.HEAD, "/otherpage.html", req -> req.putHeader("if-none-match", "*"), null, 304, "Not Modified", null);
+    // if-modified-since is ignored when if-none-match is present
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> {
+      req.putHeader("if-none-match", "\"other\"");
+      req.putHeader("if-modified-since", lastModifiedRef.get());
+    }, null, 200, "OK", "<html><body>Other page</body></html>");
+  }
+
+  @Test
+  public void testIfMatch() throws Exception {
+    AtomicReference<String> etagRef = new AtomicReference<>();
+    testRequest(HttpMethod.GET, "/otherpage.html", null, res -> etagRef.set(res.headers().get("etag")), 200, "OK", "<html><body>Other page</body></html>");
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-match", etagRef.get()), null, 200, "OK", "<html><body>Other page</body></html>");
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-match", "\"other\""), null, 412, "Precondition Failed", null);
+    // if-match uses the strong comparison
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-match", "W/" + etagRef.get()), null, 412, "Precondition Failed", null);
+  }
+
+  @Test
+  public void testIfRange() throws Exception {
+    AtomicReference<String> etagRef = new AtomicReference<>();
+    testRequest(HttpMethod.HEAD, "/somedir/range.jpg", null, res -> etagRef.set(res.headers().get("etag")), 200, "OK", null);
+    testRequest(HttpMethod.GET, "/somedir/range.jpg", req -> {
+      req.putHeader("Range", "bytes=0-999");
+      req.putHeader("If-Range", etagRef.get());
+    }, res -> {
+      assertEquals("bytes 0-999/15783", res.headers().get("Content-Range"));
+      assertEquals("1000", res.headers().get("Content-Length"));
+    }, 206, "Partial Content", null);
+    // the file changed, the whole file is sent
+    testRequest(HttpMethod.GET, "/somedir/range.jpg", req -> {
+      req.putHeader("Range", "bytes=0-999");
+      req.putHeader("If-Range", "\"other\"");
+    }, res -> {
+      assertNull(res.headers().get("Content-Range"));
+      assertEquals("15783", res.headers().get("Content-Length"));
+    }, 200, "OK", null);
+  }
+
   @Test
   public void testSendVaryAcceptEncodingHeader() throws Exception {
     testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("accept-encoding", "gzip"), res -> {
@@ -320,6 +380,82 @@ public class StaticHandlerTest extends WebTestBase {
     }, 200, "OK", "<html><body>File system page</body></html>");
   }
 
+  @Test
+  public void testContentCache() throws Exception {
+    File file = new File(testFolder.getRoot(), "cached.html");
+    Files.write(file.toPath(), "<html><body>Cached page</body></html>".getBytes());
+    File large = new File(testFolder.getRoot(), "large.html");
+    Files.write(large.toPath(), "<html><body>Large page, larger than the limit</body></html>".getBytes());
+    stat.setAllowRootFileSystemAccess(true).setWebRoot(testFolder.getRoot().getAbsolutePath())
+      .setMaxContentCacheSize(1024).setMaxContentCacheFileSize(40);
+
+    testRequest(HttpMethod.GET, "/cached.html", 200, "OK", "<html><body>Cached page</body></html>");
+    testRequest(HttpMethod.GET, "/large.html", 200, "OK", "<html><body>Large page, larger than the limit</body></html>");
+    // the content was read when the files were first served, changing the files does not change what is served
+    Files.write(file.toPath(), "<html><body>Cached PAGE</body></html>".getBytes());
+    Files.write(large.toPath(), "<html><body>LARGE PAGE, larger than the limit</body></html>".getBytes());
+
+    // read only files are served from memory
+    testRequest(HttpMethod.GET, "/cached.html", null, res -> {
+      assertEquals("text/html;charset=UTF-8", res.headers().get("content-type"));
+      assertEquals("37", res.headers().get("content-length"));
+      assertEquals("bytes", res.headers().get("accept-ranges"));
+      assertNotNull(res.headers().get("last-modified"));
+      assertNotNull(res.headers().get("date"));
+    }, 200, "OK", "<html><body>Cached page</body></html>");
+    testRequest(HttpMethod.HEAD, "/cached.html", 200, "OK");
+    // larger files are not
+    testRequest(HttpMethod.GET, "/large.html", 200, "OK", "<html><body>LARGE PAGE, larger than the limit</body></html>");
+  }
+
+  @Test
+  public void testPrecompressedFiles() throws Exception {
+    // the content of the precompressed files does not matter to the handler
+    Files.write(new File(testFolder.getRoot(), "app.js").toPath(), "var app;".getBytes());
+    Files.write(new File(testFolder.getRoot(), "app.js.gz").toPath(), "gzip".getBytes());
+    Files.write(new File(testFolder.getRoot(), "app.js.br").toPath(), "brotli".getBytes());
+    Files.write(new File(testFolder.getRoot(), "other.js").toPath(), "var other;".getBytes());
+    stat.setAllowRootFileSystemAccess(true).setWebRoot(testFolder.getRoot().getAbsolutePath())
+      .setEnablePrecompressedFiles(true);
+
+    testRequest(HttpMethod.GET, "/app.js", null, res -> {
+      assertNull(res.headers().get("content-encoding"));
+      assertEquals("accept-encoding", res.headers().get("vary"));
+    }, 200, "OK", "var app;");
+    testRequest(HttpMethod.GET, "/app.js", req -> req.putHeader("accept-encoding", "gzip, deflate"), res -> {
+      assertEquals("gzip", res.headers().get("content-encoding"));
+      // another representation, another entity tag
+      assertTrue(res.headers().get("etag").endsWith("-gzip\""));
+      assertEquals("4", res.headers().get("content-length"));
+      assertEquals("accept-encoding", res.headers().get("vary"));
+      assertTrue(res.headers().get("content-type").startsWith("application/javascript"));
+    }, 200, "OK", "gzip");
+    // served from the cached props
+    testRequest(HttpMethod.GET, "/app.js", req -> req.putHeader("accept-encoding", "gzip;q=0.5, br"), res -> {
+      assertEquals("br", res.headers().get("content-encoding"));
+    }, 200, "OK", "brotli");
+    testRequest(HttpMethod.GET, "/app.js", req -> req.putHeader("accept-encoding", "identity, gzip;q=0.5"), res -> {
+      assertNull(res.headers().get("content-encoding"));
+    }, 200, "OK", "var app;");
+    // the refused encodings are never sent
+    testRequest(HttpMethod.GET, "/app.js", req -> req.putHeader("accept-encoding", "br;q=0, gzip"), res -> {
+      assertEquals("gzip", res.headers().get("content-encoding"));
+    }, 200, "OK", "gzip");
+    testRequest(HttpMethod.GET, "/app.js", req -> req.putHeader("accept-encoding", "gzip;q=0, br;q=0"), res -> {
+      assertNull(res.headers().get("content-encoding"));
+    }, 200, "OK", "var app;");
+    // range requests get the file itself
+    testRequest(HttpMethod.GET, "/app.js", req -> {
+      req.putHeader("accept-encoding", "gzip");
+      req.putHeader("Range", "bytes=0-2");
+    }, res -> {
+      assertNull(res.headers().get("content-encoding"));
+    }, 206, "Partial Content", "var");
+    testRequest(HttpMethod.GET, "/other.js", req -> req.putHeader("accept-encoding", "gzip"), res -> {
+      assertNull(res.headers().get("content-encoding"));
+    }, 200, "OK", "var other;");
+  }
+
   @Test
   public void testDirectoryListingText() throws Exception {
     stat.setDirectoryListing(true);
@@ -16,6 +16,11 @@
 package io.vertx.ext.web.handler.sockjs;
 
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.bridge.BridgeEventType;
+import io.vertx.ext.bridge.PermittedOptions;
+import io.vertx.ext.web.handler.sockjs.impl.SockJSSocketBase;
 import io.vertx.test.core.TestUtils;
 import org.junit.Test;
 
@@ -105,4 +110,135 @@ public class SockJSSessionTest extends SockJSTestBase {
     });
     await();
   }
+
+  @Test
+  public void testSlowConsumerDropOldest() {
+    SockJSHandler handler = SockJSHandler.create(vertx, new SockJSHandlerOptions()
+      .setWriteQueueMaxSize(30)
+      .setSlowConsumerPolicy(SlowConsumerPolicy.DROP_OLDEST));
+    router.route("/slow/*").handler(handler);
+    handler.socketHandler(socket -> vertx.setTimer(100, id -> {
+      // the client is not polling, the messages are queued
+      for (int i = 0; i < 10; i++) {
+        socket.write("message" + i);
+      }
+      SockJSSocketBase base = (SockJSSocketBase) socket;
+      assertEquals(3, base.pendingWriteCount());
+      assertEquals(24, base.pendingWriteBytes());
+      assertEquals(7, base.droppedWriteCount());
+      client.post("/slow/400/8ne8e94a/xhr", resp -> resp.bodyHandler(body -> {
+        assertEquals("a[\"message7\",\"message8\",\"message9\"]\n", body.toString());
+        testComplete();
+      })).end();
+    }));
+    client.post("/slow/400/8ne8e94a/xhr", resp -> assertEquals(200, resp.statusCode())).end();
+    await();
+  }
+
+  @Test
+  public void testSlowConsumerDropNewest() {
+    SockJSHandler handler = SockJSHandler.create(vertx, new SockJSHandlerOptions()
+      .setWriteQueueMaxSize(30)
+      .setSlowConsumerPolicy(SlowConsumerPolicy.DROP_NEWEST));
+    router.route("/slow/*").handler(handler);
+    handler.socketHandler(socket -> vertx.setTimer(100, id -> {
+      for (int i = 0; i < 10; i++) {
+        socket.write("message" + i);
+      }
+      SockJSSocketBase base = (SockJSSocketBase) socket;
+      assertEquals(3, base.pendingWriteCount());
+      assertEquals(24, base.pendingWriteBytes());
+      assertEquals(7, base.droppedWriteCount());
+      client.post("/slow/400/8ne8e94a/xhr", resp -> resp.bodyHandler(body -> {
+        assertEquals("a[\"message0\",\"message1\",\"message2\"]\n", body.toString());
+        testComplete();
+      })).end();
+    }));
+    client.post("/slow/400/8ne8e94a/xhr", resp -> assertEquals(200, resp.statusCode())).end();
+    await();
+  }
+
+  @Test
+  public void testSlowConsumerClose() {
+    SockJSHandler handler = SockJSHandler.create(vertx, new SockJSHandlerOptions()
+      .setWriteQueueMaxSize(30)
+      .setSlowConsumerPolicy(SlowConsumerPolicy.CLOSE));
+    router.route("/slow/*").handler(handler);
+    handler.socketHandler(socket -> vertx.setTimer(100, id -> {
+      AtomicBoolean ended = new AtomicBoolean();
+      socket.endHandler(v -> ended.set(true));
+      for (int i = 0; i < 4; i++) {
+        socket.write("message" + i);
+      }
+      SockJSSocketBase base = (SockJSSocketBase) socket;
+      assertTrue(ended.get());
+      assertEquals(0, base.pendingWriteCount());
+      assertEquals(4, base.droppedWriteCount());
+      client.post("/slow/400/8ne8e94a/xhr", resp -> resp.bodyHandler(body -> {
+        assertEquals("c[3000,\"Go away!\"]\n", body.toString());
+        testComplete();
+      })).end();
+    }));
+    client.post("/slow/400/8ne8e94a/xhr", resp -> assertEquals(200, resp.statusCode())).end();
+    await();
+  }
+
+  @Test
+  public void testSlowConsumerConflateByAddress() {
+    // a0 and b0 fill the queue, the next messages of b replace b0
+    testSlowConsumerConflate("b4", 2, 80, 4, "a0", "b4");
+  }
+
+  @Test
+  public void testSlowConsumerConflateKeepsTheQueueBound() {
+    // the larger conflated message of b pushes a0 out
+    testSlowConsumerConflate("b4-larger-value", 1, 53, 5, "b4-larger-value");
+  }
+
+  private void testSlowConsumerConflate(String last, int count, int bytes, long dropped, String... expected) {
+    SockJSHandler handler = SockJSHandler.create(vertx, new SockJSHandlerOptions()
+      .setWriteQueueMaxSize(80)
+      .setSlowConsumerPolicy(SlowConsumerPolicy.CONFLATE));
+    router.route("/slow/*").handler(handler);
+    CompletableFuture<SockJSSocketBase> socket = new CompletableFuture<>();
+    handler.bridge(new BridgeOptions().addOutboundPermitted(new PermittedOptions()), be -> {
+      if (be.type() == BridgeEventType.SOCKET_CREATED) {
+        socket.complete((SockJSSocketBase) be.socket());
+      }
+      be.complete(true);
+    });
+    client.post("/slow/400/8ne8e94a/xhr", resp -> resp.bodyHandler(open -> {
+      assertEquals("o\n", open.toString());
+      JsonArray frames = new JsonArray()
+        .add(new JsonObject().put("type", "register").put("address", "a").encode())
+        .add(new JsonObject().put("type", "register").put("address", "b").encode());
+      client.post("/slow/400/8ne8e94a/xhr_send", respSend -> {
+        assertEquals(204, respSend.statusCode());
+        vertx.setTimer(100, id1 -> {
+          // the client is not polling, the messages are queued
+          vertx.eventBus().publish("a", "a0");
+          for (int i = 0; i < 4; i++) {
+            vertx.eventBus().publish("b", "b" + i);
+          }
+          vertx.eventBus().publish("b", last);
+          vertx.setTimer(100, id2 -> {
+            SockJSSocketBase base = socket.getNow(null);
+            assertEquals(count, base.pendingWriteCount());
+            assertEquals(bytes, base.pendingWriteBytes());
+            assertEquals(dropped, base.droppedWriteCount());
+            client.post("/slow/400/8ne8e94a/xhr", poll -> poll.bodyHandler(body -> {
+              assertTrue(body.toString().startsWith("a"));
+              JsonArray messages = new JsonArray(body.toString().substring(1));
+              assertEquals(expected.length, messages.size());
+              for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], new JsonObject(messages.getString(i)).getString("body"));
+              }
+              testComplete();
+            })).end();
+          });
+        });
+      }).end(frames.encode());
+    })).end();
+    await();
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryBridgeCodecTest {
+
+  private final BinaryBridgeCodec codec = BinaryBridgeCodec.INSTANCE;
+
+  @Test
+  public void testRoundTrip() {
+    JsonObject envelope = new JsonObject()
+      .put("type", "rec")
+      .put("address", "some.address")
+      .put("replyAddress", "reply.h\u00e9")
+      .put("headers", new JsonObject().put("one", "1").put("many", new JsonArray().add("a").add("b")))
+      .put("body", new JsonObject().put("foo", new JsonArray().add(1).add(true).add("bar")));
+    assertEquals(envelope, decodeOne(codec.encode(envelope)));
+
+    for (Object body : new Object[]{"foo", 123, 1.5, false, new JsonArray().add("x")}) {
+      JsonObject send = new JsonObject().put("type", "send").put("address", "a").put("body", body);
+      assertEquals(send, decodeOne(codec.encode(send)));
+    }
+
+    JsonObject ping = new JsonObject().put("type", "ping");
+    assertEquals(ping, decodeOne(codec.encode(ping)));
+  }
+
+  @Test
+  public void testExtraFields() {
+    JsonObject err = new JsonObject()
+      .put("type", "err")
+      .put("address", "reply")
+      .put("failureCode", -1)
+      .put("failureType", "TIMEOUT")
+      .put("message", "Timed out");
+    assertEquals(err, decodeOne(codec.encode(err)));
+
+    JsonObject other = new JsonObject().put("type", "custom").put("address", "a").put("body", "foo");
+    Buffer encoded = codec.encode(other);
+    assertEquals(BinaryBridgeCodec.TYPE_OTHER, encoded.getByte(4) & 0xFF);
+    assertEquals(other, decodeOne(encoded));
+  }
+
+  @Test
+  public void testBinaryBody() {
+    Buffer body = Buffer.buffer(new byte[]{0, 1, 2, (byte) 0xFF});
+    JsonObject envelope = new JsonObject().put("type", "publish").put("address", "a");
+    envelope.getMap().put("body", body);
+    JsonObject decoded = decodeOne(codec.encode(envelope));
+    assertEquals(body, decoded.getValue("body"));
+    assertEquals("a", decoded.getString("address"));
+
+    // JSON clients get it base64 encoded
+    JsonObject json = new JsonObject(BridgeCodec.JSON.encode(envelope).toString());
+    assertArrayEquals(body.getBytes(), json.getBinary("body"));
+    assertSame(body, envelope.getValue("body"));
+  }
+
+  @Test
+  public void testBatch() {
+    Buffer frame = Buffer.buffer();
+    BinaryBridgeCodec.encode(new JsonObject().put("type", "register").put("address", "a"), frame);
+    BinaryBridgeCodec.encode(new JsonObject().put("type", "publish").put("address", "a").put("body", "foo"), frame);
+    List<JsonObject> envelopes = codec.decode(frame);
+    assertEquals(2, envelopes.size());
+    assertEquals("register", envelopes.get(0).getString("type"));
+    assertEquals("foo", envelopes.get(1).getValue("body"));
+  }
+
+  @Test
+  public void testMalformed() {
+    Buffer encoded = codec.encode(new JsonObject().put("type", "send").put("address", "a").put("body", "foo"));
+    assertMalformed(encoded.getBuffer(0, encoded.length() - 1));
+    assertMalformed(encoded.copy().appendByte((byte) 0));
+    assertMalformed(encoded.copy().setByte(4, (byte) 42));
+    // the envelope length is right but a field overflows it
+    assertMalformed(encoded.copy().setShort(6, (short) 100));
+  }
+
+  private JsonObject decodeOne(Buffer data) {
+    List<JsonObject> envelopes = codec.decode(data);
+    assertEquals(1, envelopes.size());
+    return envelopes.get(0);
+  }
+
+  private void assertMalformed(Buffer data) {
+    try {
+      codec.decode(data);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+}
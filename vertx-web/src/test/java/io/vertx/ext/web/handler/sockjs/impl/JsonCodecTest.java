@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JsonCodecTest {
+
+  @Test
+  public void testArrayFrame() {
+    assertEquals("a[\"foo\"]", JsonCodec.encodeArrayFrame(Collections.singletonList("foo")));
+    assertEquals("a[\"h\\u00e9\\\"\\\\\\n\\u2028\",\"\"]", JsonCodec.encodeArrayFrame(Arrays.asList("h\u00e9\"\\\n\u2028", "")));
+  }
+
+  @Test
+  public void testArrayFrameEscapesAsEncode() {
+    Random random = new Random(0);
+    for (int n = 0; n < 1000; n++) {
+      List<String> messages = new ArrayList<>();
+      for (int i = 1 + random.nextInt(4); i > 0; i--) {
+        StringBuilder sb = new StringBuilder();
+        for (int j = random.nextInt(20); j > 0; j--) {
+          int kind = random.nextInt(3);
+          sb.append((char) (kind == 0 ? random.nextInt(0x80) : kind == 1 ? random.nextInt(0x10000) : 'a' + random.nextInt(26)));
+        }
+        messages.add(sb.toString());
+      }
+      assertEquals("a" + JsonCodec.encode(messages.toArray()), JsonCodec.encodeArrayFrame(messages));
+    }
+  }
+}
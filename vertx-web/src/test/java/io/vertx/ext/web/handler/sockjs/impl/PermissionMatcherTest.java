@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.bridge.PermittedOptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PermissionMatcherTest {
+
+  @Test
+  public void testEmpty() {
+    PermissionMatcher matcher = new PermissionMatcher(new ArrayList<>());
+    assertNull(matcher.match("foo", null));
+  }
+
+  @Test
+  public void testExactAndRegex() {
+    PermittedOptions foo = new PermittedOptions().setAddress("foo");
+    PermittedOptions news = new PermittedOptions().setAddressRegex("news\\..+");
+    PermittedOptions chat = new PermittedOptions().setAddressRegex("chat\\.[0-9]+");
+    PermissionMatcher matcher = new PermissionMatcher(Arrays.asList(foo, news, chat));
+    for (int i = 0; i < 2; i++) {
+      // the second time round the decisions come from the cache
+      assertSame(foo, matcher.match("foo", null));
+      assertSame(news, matcher.match("news.sport", null));
+      assertSame(chat, matcher.match("chat.123", null));
+      assertNull(matcher.match("chat.abc", null));
+      assertNull(matcher.match("bar", null));
+    }
+  }
+
+  @Test
+  public void testFirstMatchWins() {
+    PermittedOptions regex = new PermittedOptions().setAddressRegex("foo.*").setRequiredAuthority("first");
+    PermittedOptions exact = new PermittedOptions().setAddress("foo").setRequiredAuthority("second");
+    PermittedOptions any = new PermittedOptions();
+    PermissionMatcher matcher = new PermissionMatcher(Arrays.asList(regex, exact, any));
+    assertSame(regex, matcher.match("foo", null));
+    assertSame(regex, matcher.match("foobar", null));
+    assertSame(any, matcher.match("bar", null));
+  }
+
+  @Test
+  public void testStructureMatch() {
+    PermittedOptions admin = new PermittedOptions().setAddress("foo")
+      .setMatch(new JsonObject().put("user", new JsonObject().put("role", "admin")));
+    PermittedOptions fallback = new PermittedOptions().setAddressRegex("f.*").setMatch(new JsonObject().put("a", 1));
+    PermissionMatcher matcher = new PermissionMatcher(Arrays.asList(admin, fallback));
+    assertSame(admin, matcher.match("foo", new JsonObject().put("user", new JsonObject().put("role", "admin"))));
+    JsonObject guest = new JsonObject().put("role", "guest");
+    assertSame(fallback, matcher.match("foo", new JsonObject().put("a", 1).put("user", guest)));
+    assertNull(matcher.match("foo", new JsonObject().put("a", 2).put("user", guest)));
+    assertNull(matcher.match("foo", "not json"));
+    // messages without body are only checked against the address
+    assertSame(admin, matcher.match("foo", null));
+  }
+
+  @Test
+  public void testBackReference() {
+    PermittedOptions twice = new PermittedOptions().setAddressRegex("(a+)-\\1");
+    PermittedOptions other = new PermittedOptions().setAddressRegex("(b+)");
+    PermissionMatcher matcher = new PermissionMatcher(Arrays.asList(twice, other));
+    assertSame(twice, matcher.match("aa-aa", null));
+    assertNull(matcher.match("aa-a", null));
+    assertSame(other, matcher.match("bbb", null));
+  }
+
+  @Test
+  public void testCacheBound() {
+    PermittedOptions regex = new PermittedOptions().setAddressRegex("[0-9]+");
+    PermissionMatcher matcher = new PermissionMatcher(Arrays.asList(regex), 16);
+    for (int i = 0; i < 1000; i++) {
+      assertSame(regex, matcher.match(Integer.toString(i), null));
+      assertNull(matcher.match("x" + i, null));
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.eventbus.Message;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+public class ReplyRegistryTest extends VertxTestBase {
+
+  @Test
+  public void testRemoveAndExpire() {
+    ReplyRegistry registry = new ReplyRegistry(vertx, 100, 10, 2);
+    vertx.eventBus().<String>consumer("foo", msg -> {
+      registry.put("reply-" + msg.body(), msg);
+      if ("3".equals(msg.body())) {
+        // the bound is reached
+        assertEquals(1, registry.rejectedCount());
+        assertEquals(2, registry.pendingCount());
+        Message<?> replied = registry.remove("reply-1");
+        assertEquals("1", replied.body());
+        assertNull(registry.remove("reply-1"));
+        assertNull(registry.remove("reply-3"));
+        vertx.setTimer(300, id -> {
+          assertEquals(0, registry.pendingCount());
+          assertEquals(1, registry.expiredCount());
+          assertNull(registry.remove("reply-2"));
+          testComplete();
+        });
+      }
+    });
+    vertx.eventBus().send("foo", "1");
+    vertx.eventBus().send("foo", "2");
+    vertx.eventBus().send("foo", "3");
+    await();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.handler.sockjs.impl;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimerWheelTest extends VertxTestBase {
+
+  @Test
+  public void testTimeouts() {
+    Context context = vertx.getOrCreateContext();
+    AtomicInteger fired = new AtomicInteger();
+    context.runOnContext(v -> {
+      long start = System.currentTimeMillis();
+      List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        final long delay = 10 + i % 200;
+        timeouts.add(TimerWheel.schedule(vertx, 10, delay, v2 -> {
+          assertSame(context, vertx.getOrCreateContext());
+          long elapsed = System.currentTimeMillis() - start;
+          // allow for the difference between the clocks
+          assertTrue(elapsed >= delay - 1);
+          if (fired.incrementAndGet() == 500) {
+            // the cancelled timeouts never fire
+            vertx.setTimer(300, t -> {
+              assertEquals(500, fired.get());
+              testComplete();
+            });
+          }
+        }));
+      }
+      for (int i = 0; i < 1000; i += 2) {
+        timeouts.get(i).cancel();
+      }
+    });
+    await();
+  }
+
+  @Test
+  public void testSharedByContext() {
+    vertx.runOnContext(v -> {
+      TimerWheel wheel = TimerWheel.current(vertx, 10);
+      assertSame(wheel, TimerWheel.current(vertx, 10));
+      assertNotSame(wheel, TimerWheel.current(vertx, 20));
+      vertx.deployVerticle(new AbstractVerticle() {
+        @Override
+        public void start() {
+          assertNotSame(wheel, TimerWheel.current(vertx, 10));
+          testComplete();
+        }
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void testWorkerContext() {
+    vertx.deployVerticle(new AbstractVerticle() {
+      @Override
+      public void start() {
+        try {
+          TimerWheel.current(vertx, 10);
+          fail();
+        } catch (IllegalStateException expected) {
+        }
+        Context worker = vertx.getOrCreateContext();
+        TimerWheel.schedule(vertx, 10, 10, v -> fail()).cancel();
+        TimerWheel.schedule(vertx, 10, 20, v -> {
+          // scheduled on a timer of its own
+          assertSame(worker, vertx.getOrCreateContext());
+          testComplete();
+        });
+      }
+    }, new DeploymentOptions().setWorker(true));
+    await();
+  }
+
+  @Test
+  public void testRescheduleFromTask() {
+    AtomicInteger count = new AtomicInteger();
+    vertx.runOnContext(v -> schedule(count));
+    await();
+  }
+
+  private void schedule(AtomicInteger count) {
+    TimerWheel.schedule(vertx, 5, 5, v -> {
+      if (count.incrementAndGet() == 10) {
+        testComplete();
+      } else {
+        schedule(count);
+      }
+    });
+  }
+}
@@ -0,0 +1,43 @@
+package io.vertx.ext.web.impl;
+
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.LanguageHeader;
+import io.vertx.ext.web.MIMEHeader;
+import io.vertx.ext.web.ParsedHeaderValue;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ParsableHeaderValuesContainerTest {
+
+  @Test
+  public void testSingleValueHeadersAreParsedBeforeBeingShared() {
+    HttpServerRequest request = mock(HttpServerRequest.class);
+    when(request.getHeader("Accept")).thenReturn("application/x-single-value-test");
+    when(request.getHeader("Accept-Charset")).thenReturn("x-single-value-test");
+    when(request.getHeader("Accept-Language")).thenReturn("x-single-value-test");
+
+    List<MIMEHeader> accept = new ParsableHeaderValuesContainer(request).accept();
+    assertEquals(1, accept.size());
+    assertParsed(accept.get(0));
+
+    List<ParsedHeaderValue> charset = new ParsableHeaderValuesContainer(request).acceptCharset();
+    assertEquals(1, charset.size());
+    assertParsed(charset.get(0));
+
+    List<LanguageHeader> language = new ParsableHeaderValuesContainer(request).acceptLanguage();
+    assertEquals(1, language.size());
+    assertParsed(language.get(0));
+
+    // the next requests share the parsed values
+    assertSame(accept, new ParsableHeaderValuesContainer(request).accept());
+  }
+
+  private static void assertParsed(ParsedHeaderValue value) {
+    // read the field, the accessors would parse the value
+    assertNotNull(((ParsableHeaderValue) value).value);
+  }
+}
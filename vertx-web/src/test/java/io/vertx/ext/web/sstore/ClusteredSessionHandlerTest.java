@@ -27,6 +27,7 @@ import io.vertx.ext.web.handler.CookieHandler;
 import io.vertx.ext.web.handler.SessionHandler;
 import io.vertx.ext.web.handler.SessionHandlerTestBase;
 import io.vertx.ext.web.handler.SomeSerializable;
+import io.vertx.ext.web.sstore.impl.ClusteredSessionStoreImpl;
 import io.vertx.ext.web.sstore.impl.SessionImpl;
 import io.vertx.test.core.TestUtils;
 import io.vertx.test.fakecluster.FakeClusterManager;
@@ -182,6 +183,127 @@ public class ClusteredSessionHandlerTest extends SessionHandlerTestBase {
     assertEquals("bar", json.getString("foo"));
   }
 
+  @Test
+  public void testCompareAndSetWrite() throws Exception {
+    ClusteredSessionStoreImpl store = (ClusteredSessionStoreImpl) this.store;
+    SessionImpl session = (SessionImpl) store.createSession(30000);
+    session.put("a", 1);
+    store.put(session, onSuccess(v -> {
+      // two requests working on the same stored version
+      SessionImpl first = copy(session);
+      SessionImpl second = copy(session);
+      first.put("b", 2);
+      store.put(first, onSuccess(v2 -> {
+        second.put("c", 3);
+        store.put(second, onFailure(err -> {
+          assertEquals("Version mismatch", err.getMessage());
+          assertEquals(1, store.conflictCount());
+          store.get(session.id(), onSuccess(stored -> {
+            assertEquals(2, (int) stored.get("b"));
+            assertNull(stored.get("c"));
+            SessionImpl third = copy((SessionImpl) stored);
+            SessionImpl fourth = copy((SessionImpl) stored);
+            vertx.setTimer(5, t -> {
+              // a write which does not change the data does not conflict with a later change
+              third.setAccessed();
+              store.put(third, onSuccess(v3 -> {
+                fourth.put("d", 4);
+                store.put(fourth, onSuccess(v4 -> {
+                  assertEquals(1, store.conflictCount());
+                  testComplete();
+                }));
+              }));
+            });
+          }));
+        }));
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testUpdatedSessionExpires() throws Exception {
+    SessionImpl session = (SessionImpl) store.createSession(1000);
+    session.put("a", 1);
+    store.put(session, onSuccess(v -> vertx.setTimer(500, t -> {
+      session.put("b", 2);
+      store.put(session, onSuccess(v2 -> {
+        long updated = System.currentTimeMillis();
+        vertx.setTimer(1500, t2 -> store.get(session.id(), onSuccess(stored -> {
+          // the time to live is counted from the last write, but the entry does not outlive it
+          assertTrue(System.currentTimeMillis() - updated >= 1000);
+          assertNull(stored);
+          testComplete();
+        })));
+      }));
+    })));
+    await();
+  }
+
+  @Test
+  public void testNearCache() throws Exception {
+    ClusteredSessionStoreImpl store1 = (ClusteredSessionStoreImpl) ClusteredSessionStore.create(vertices[0]).setNearCache(100, 10000);
+    ClusteredSessionStoreImpl store2 = (ClusteredSessionStoreImpl) ClusteredSessionStore.create(vertices[1]).setNearCache(100, 10000);
+    SessionImpl session = (SessionImpl) store1.createSession(30000);
+    session.put("a", 1);
+    store1.put(session, onSuccess(v -> store1.get(session.id(), onSuccess(local -> {
+      // served by this node, read from the near cache
+      assertEquals(1, store1.nearCacheHitCount());
+      assertNotSame(session, local);
+      assertEquals(1, (int) local.get("a"));
+      store2.get(session.id(), onSuccess(remote -> {
+        assertEquals(1, store2.nearCacheMissCount());
+        assertEquals(1, (int) remote.get("a"));
+        local.put("b", 2);
+        store1.put(local, onSuccess(v2 -> vertx.setTimer(500, t -> {
+          // the write on the other node invalidated the cached copy
+          store2.get(session.id(), onSuccess(updated -> {
+            assertEquals(2, store2.nearCacheMissCount());
+            assertEquals(2, (int) updated.get("b"));
+            store1.close();
+            store2.close();
+            testComplete();
+          }));
+        })));
+      }));
+    }))));
+    await();
+  }
+
+  @Test
+  public void testWaitForSession() throws Exception {
+    ClusteredSessionStore store1 = ClusteredSessionStore.create(vertices[0]);
+    ClusteredSessionStoreImpl store2 = (ClusteredSessionStoreImpl) ClusteredSessionStore.create(vertices[1]);
+    Session session = store1.createSession(30000);
+    session.put("a", 1);
+    long start = System.currentTimeMillis();
+    CountDownLatch latch = new CountDownLatch(2);
+    AtomicReference<Session> first = new AtomicReference<>();
+    for (int i = 0; i < 2; i++) {
+      store2.waitFor(session.id(), 10000, onSuccess(stored -> {
+        assertNotNull(stored);
+        assertEquals(1, (int) stored.get("a"));
+        // each request gets its own session
+        assertNotSame(stored, first.getAndSet(stored));
+        latch.countDown();
+      }));
+    }
+    vertx.setTimer(200, t -> store1.put(session, onSuccess(v -> {})));
+    awaitLatch(latch);
+    // notified of the write instead of waiting for the timeout
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    store1.close();
+    store2.close();
+  }
+
+  private SessionImpl copy(SessionImpl session) {
+    Buffer buff = Buffer.buffer();
+    session.writeToBuffer(buff);
+    SessionImpl copy = new SessionImpl();
+    copy.readFromBuffer(0, buff);
+    return copy;
+  }
+
   @Test
   public void testRetryTimeout() throws Exception {
     long val = doTestSessionRetryTimeout();
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.handler.SomeSerializable;
+import io.vertx.ext.web.sstore.impl.SessionImpl;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class CompactSessionDataCodecTest {
+
+  @Test
+  public void testRoundTrip() {
+    CompactSessionDataCodec codec = CompactSessionDataCodec.create();
+    JsonArray users = new JsonArray();
+    for (int i = 0; i < 10; i++) {
+      users.add(new JsonObject().put("name", "user" + i).put("age", i).put("admin", i == 0));
+    }
+    Map<String, Object> data = new HashMap<>();
+    data.put("long", -123456789L);
+    data.put("int", 1234);
+    data.put("short", (short) -12);
+    data.put("byte", (byte) 12);
+    data.put("double", 123.456d);
+    data.put("float", 123.456f);
+    data.put("char", 'X');
+    data.put("true", true);
+    data.put("string", "wibble");
+    data.put("bytes", new byte[] {1, 2, 3});
+    data.put("buffer", Buffer.buffer("buffer"));
+    data.put("instant", Instant.ofEpochSecond(1500000000L, 123));
+    data.put("users", new JsonObject().put("list", users).putNull("none"));
+    data.put("serializable", new SomeSerializable("eek"));
+
+    Buffer buffer = Buffer.buffer();
+    codec.encode(data, buffer);
+    Map<String, Object> decoded = new HashMap<>();
+    assertEquals(buffer.length(), codec.decode(buffer, 0, decoded));
+
+    assertEquals(data.size(), decoded.size());
+    assertEquals(-123456789L, decoded.get("long"));
+    assertEquals(1234, decoded.get("int"));
+    assertEquals((short) -12, decoded.get("short"));
+    assertEquals((byte) 12, decoded.get("byte"));
+    assertEquals(123.456d, decoded.get("double"));
+    assertEquals(123.456f, decoded.get("float"));
+    assertEquals('X', decoded.get("char"));
+    assertEquals(true, decoded.get("true"));
+    assertEquals("wibble", decoded.get("string"));
+    assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) decoded.get("bytes"));
+    assertEquals(Buffer.buffer("buffer"), decoded.get("buffer"));
+    assertEquals(Instant.ofEpochSecond(1500000000L, 123), decoded.get("instant"));
+    assertEquals(data.get("users"), decoded.get("users"));
+    assertEquals("eek", ((SomeSerializable) decoded.get("serializable")).getWibble());
+
+    assertEquals(1, codec.encodedCount());
+    assertEquals(buffer.length(), codec.encodedBytes());
+    assertEquals(buffer.length(), codec.maxEncodedSize());
+  }
+
+  @Test
+  public void testRepeatedKeys() {
+    CompactSessionDataCodec codec = CompactSessionDataCodec.create();
+    JsonArray items = new JsonArray();
+    for (int i = 0; i < 100; i++) {
+      items.add(new JsonObject().put("identifier", i).put("description", "x"));
+    }
+    Map<String, Object> data = new HashMap<>();
+    data.put("items", items);
+    Buffer buffer = Buffer.buffer();
+    codec.encode(data, buffer);
+    // the field names are written once
+    assertTrue(buffer.length() < 100 * ("identifier".length() + "description".length()));
+    Map<String, Object> decoded = new HashMap<>();
+    codec.decode(buffer, 0, decoded);
+    assertEquals(items, decoded.get("items"));
+  }
+
+  @Test
+  public void testRegisteredType() {
+    CompactSessionDataCodec codec = CompactSessionDataCodec.create()
+      .register(UUID.class, uuid -> Buffer.buffer().appendLong(uuid.getMostSignificantBits()).appendLong(uuid.getLeastSignificantBits()),
+        buff -> new UUID(buff.getLong(0), buff.getLong(8)));
+    UUID uuid = UUID.randomUUID();
+    Map<String, Object> data = new HashMap<>();
+    data.put("uuid", uuid);
+    Buffer buffer = Buffer.buffer();
+    codec.encode(data, buffer);
+    Map<String, Object> decoded = new HashMap<>();
+    codec.decode(buffer, 0, decoded);
+    assertEquals(uuid, decoded.get("uuid"));
+  }
+
+  @Test
+  public void testMaxSize() {
+    CompactSessionDataCodec codec = CompactSessionDataCodec.create().setMaxSize(100);
+    Map<String, Object> data = new HashMap<>();
+    data.put("bytes", new byte[200]);
+    try {
+      codec.encode(data, Buffer.buffer());
+      fail();
+    } catch (IllegalStateException ignore) {
+      // expected
+    }
+    assertEquals(0, codec.encodedCount());
+  }
+
+  @Test
+  public void testReadLegacyFormat() {
+    byte[] id = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    byte[] key = "foo".getBytes(StandardCharsets.UTF_8);
+    byte[] value = "bar".getBytes(StandardCharsets.UTF_8);
+    Buffer buffer = Buffer.buffer()
+      .appendInt(id.length).appendBytes(id)
+      .appendLong(30000)
+      .appendLong(1500000000000L)
+      .appendInt(3)
+      // one entry, a string
+      .appendInt(1)
+      .appendInt(key.length).appendBytes(key)
+      .appendByte((byte) 9).appendInt(value.length).appendBytes(value);
+    SessionImpl session = new SessionImpl();
+    assertEquals(buffer.length(), session.readFromBuffer(0, buffer));
+    assertEquals("0123456789abcdef", session.id());
+    assertEquals(3, session.version());
+    assertEquals("bar", session.get("foo"));
+  }
+
+  @Test
+  public void testWriteLegacyFormatByDefault() {
+    Buffer buffer = Buffer.buffer()
+      .appendInt(16).appendBytes("0123456789abcdef".getBytes(StandardCharsets.UTF_8))
+      .appendLong(30000)
+      .appendLong(1500000000000L)
+      .appendInt(3)
+      .appendInt(0);
+    SessionImpl session = new SessionImpl();
+    session.readFromBuffer(0, buffer);
+    session.put("foo", "bar");
+    Buffer written = Buffer.buffer();
+    session.writeToBuffer(written);
+    // the nodes running previous versions read the number of entries
+    assertEquals(1, written.getInt(buffer.length() - 4));
+    SessionImpl read = new SessionImpl();
+    read.readFromBuffer(0, written);
+    assertEquals("bar", read.get("foo"));
+  }
+}
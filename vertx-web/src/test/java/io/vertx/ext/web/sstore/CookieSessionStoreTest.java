@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web.sstore;
+
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.WebTestBase;
+import io.vertx.ext.web.handler.CookieHandler;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.impl.CookieSessionStoreImpl;
+import io.vertx.test.core.TestUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CookieSessionStoreTest extends WebTestBase {
+
+  private static final String SECRET = "5d7a7f2b9c6e4f1aa8b3c0d9e2f14a6b";
+  private static final String NEW_SECRET = "0f9e8d7c6b5a49382716f5e4d3c2b1a0";
+
+  private final AtomicReference<String> cookie = new AtomicReference<>();
+
+  private void setupRouter(SessionStore store) {
+    router.route().handler(CookieHandler.create());
+    router.route().handler(SessionHandler.create(store));
+    router.route("/large").handler(rc -> {
+      rc.session().put("large", TestUtils.randomAlphaString(10000));
+      rc.next();
+    });
+    router.route().handler(rc -> {
+      Integer count = rc.session().get("count");
+      count = count == null ? 1 : count + 1;
+      rc.session().put("count", count);
+      rc.response().end(Integer.toString(count));
+    });
+  }
+
+  private void request(String path, String expected) throws Exception {
+    testRequest(HttpMethod.GET, path, req -> {
+      if (cookie.get() != null) {
+        req.putHeader("cookie", cookie.get());
+      }
+    }, resp -> {
+      String setCookie = resp.headers().get("set-cookie");
+      if (setCookie != null) {
+        cookie.set(setCookie.substring(0, setCookie.indexOf(';')));
+      }
+    }, 200, "OK", expected);
+  }
+
+  @Test
+  public void testSessionInCookie() throws Exception {
+    CookieSessionStoreImpl store = (CookieSessionStoreImpl) CookieSessionStore.create(vertx, Collections.singletonList(SECRET));
+    setupRouter(store);
+    request("/", "1");
+    request("/", "2");
+    request("/", "3");
+    // nothing is stored on the server
+    store.size(onSuccess(size -> {
+      assertEquals(0, (int) size);
+      testComplete();
+    }));
+    await();
+  }
+
+  @Test
+  public void testTamperedCookie() throws Exception {
+    CookieSessionStoreImpl store = (CookieSessionStoreImpl) CookieSessionStore.create(vertx, Collections.singletonList(SECRET));
+    setupRouter(store);
+    request("/", "1");
+    request("/", "2");
+    String value = cookie.get();
+    int pos = value.length() / 2;
+    char c = value.charAt(pos);
+    cookie.set(value.substring(0, pos) + (c == 'A' ? 'B' : 'A') + value.substring(pos + 1));
+    // a new session is created
+    request("/", "1");
+    assertEquals(1, store.rejectedCount());
+  }
+
+  @Test
+  public void testKeyRotation() throws Exception {
+    SessionStore oldStore = CookieSessionStore.create(vertx, Collections.singletonList(SECRET));
+    setupRouter(oldStore);
+    request("/", "1");
+    router.clear();
+    setupRouter(CookieSessionStore.create(vertx, Arrays.asList(NEW_SECRET, SECRET)));
+    request("/", "2");
+    router.clear();
+    setupRouter(CookieSessionStore.create(vertx, Collections.singletonList(NEW_SECRET)));
+    request("/", "3");
+  }
+
+  @Test
+  public void testFallback() throws Exception {
+    LocalSessionStore fallback = LocalSessionStore.create(vertx);
+    CookieSessionStoreImpl store = (CookieSessionStoreImpl) CookieSessionStore.create(vertx, Collections.singletonList(SECRET), fallback);
+    setupRouter(store);
+    request("/", "1");
+    assertFalse(cookie.get().contains("=~"));
+    request("/large", "2");
+    // too large for a cookie
+    assertTrue(cookie.get().contains("=~"));
+    assertEquals(1, store.fallbackCount());
+    request("/", "3");
+    fallback.size(onSuccess(size -> {
+      assertEquals(1, (int) size);
+      testComplete();
+    }));
+    await();
+  }
+
+  @Test
+  public void testTooLargeWithoutFallback() throws Exception {
+    setupRouter(CookieSessionStore.create(vertx, Collections.singletonList(SECRET)));
+    request("/", "1");
+    String value = cookie.get();
+    // too large for a cookie, the cookie is not sent
+    request("/large", "2");
+    assertEquals(value, cookie.get());
+    // the client still has the previous session
+    request("/", "2");
+  }
+
+  @Test
+  public void testDataCodec() throws Exception {
+    CompactSessionDataCodec codec = CompactSessionDataCodec.create();
+    setupRouter(CookieSessionStore.create(vertx, Collections.singletonList(SECRET)).setDataCodec(codec));
+    request("/", "1");
+    request("/", "2");
+    request("/", "3");
+    assertTrue(codec.encodedCount() > 0);
+  }
+}
@@ -16,7 +16,9 @@
 
 package io.vertx.ext.web.sstore;
 
+import io.vertx.ext.web.Session;
 import io.vertx.ext.web.handler.SessionHandlerTestBase;
+import io.vertx.ext.web.sstore.impl.LocalSessionStoreImpl;
 import org.junit.Test;
 
 /**
@@ -34,4 +36,39 @@ public class LocalSessionHandlerTest extends SessionHandlerTestBase {
   public void testRetryTimeout() throws Exception {
     assertTrue(doTestSessionRetryTimeout() < 3000);
   }
+
+  @Test
+  public void testReaperOnlyRemovesExpiredSessions() throws Exception {
+    LocalSessionStoreImpl reaped = (LocalSessionStoreImpl) LocalSessionStore.create(vertx, "reaper-test", 100);
+    Session expiring = reaped.createSession(200);
+    Session alive = reaped.createSession(60000);
+    reaped.put(expiring, res -> reaped.put(alive, res2 -> {
+      vertx.setTimer(1000, tid -> reaped.size(res3 -> {
+        assertEquals(1, res3.result().intValue());
+        assertEquals(1, reaped.reapedCount());
+        assertTrue(reaped.reaperPauseTime() > 0);
+        reaped.get(alive.id(), res4 -> {
+          assertNotNull(res4.result());
+          reaped.close();
+          testComplete();
+        });
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void testCloseKeepsTheExpiryIndexOfTheOtherStores() throws Exception {
+    LocalSessionStoreImpl closed = (LocalSessionStoreImpl) LocalSessionStore.create(vertx, "shared-index-test", 100);
+    LocalSessionStoreImpl open = (LocalSessionStoreImpl) LocalSessionStore.create(vertx, "shared-index-test", 100);
+    closed.close();
+    Session expiring = open.createSession(200);
+    open.put(expiring, res -> vertx.setTimer(1000, tid -> open.get(expiring.id(), res2 -> {
+      assertNull(res2.result());
+      assertEquals(1, open.reapedCount());
+      open.close();
+      testComplete();
+    })));
+    await();
+  }
 }